@@ -0,0 +1,310 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.util.collection;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * An thread safe hash map from primitive <tt>int</tt> keys to objects. Keys
+ * are never boxed and collisions are resolved by open addressing with linear
+ * probing.
+ * <p>
+ * Reads never lock. Writes are serialized with the map monitor. To keep reads
+ * safe without locking, once a slot is claimed by a key it is never given to
+ * another key: removing an entry only marks its slot as deleted. Deleted slots
+ * are dropped when the table is rebuilt. Reads running concurrently with an
+ * write might or might not see the written value.
+ * <p>
+ * <tt>null</tt> values are not allowed.
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ * 
+ * @param <V>
+ *            the value type
+ */
+public class ConcurrentIntObjectMap<V> {
+	/**
+	 * The default initial capacity
+	 */
+	private static final int DEFAULT_CAPACITY = 16;
+	/**
+	 * The maximum load factor, counting deleted slots. Once exceeded the table
+	 * is rebuilt.
+	 */
+	private static final float LOAD_FACTOR = 0.5f;
+	/**
+	 * Marks a deleted slot
+	 */
+	private static final Object DELETED = new Object();
+
+	/**
+	 * The current table. Replaced (never modified in place) when rebuilt.
+	 */
+	private volatile Table table;
+	/**
+	 * The amount of entries in the map
+	 */
+	private volatile int size;
+
+	/**
+	 * Creates a new map with the default capacity
+	 */
+	public ConcurrentIntObjectMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new map
+	 * 
+	 * @param expected
+	 *            the expected amount of entries
+	 */
+	public ConcurrentIntObjectMap(int expected) {
+		Preconditions.checkArgument(expected >= 0, "expected < 0");
+		table = new Table(capacity(expected));
+	}
+
+	/**
+	 * @param key
+	 *            the key
+	 * @return the value associated with <tt>key</tt> or <tt>null</tt>
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		final Table table = this.table;
+		final int slot = table.find(key);
+		if (slot < 0)
+			return null;
+		final Object value = table.values.get(slot);
+		return (value == DELETED ? null : (V) value);
+	}
+
+	/**
+	 * @param key
+	 *            the key
+	 * @return true if there is an value associated with <tt>key</tt>
+	 */
+	public boolean containsKey(int key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * Associates <tt>value</tt> with <tt>key</tt>
+	 * 
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value. Cannot be <tt>null</tt>.
+	 * @return the value previously associated with <tt>key</tt> or
+	 *         <tt>null</tt>
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized V put(int key, V value) {
+		Preconditions.checkNotNull(value, "value");
+		Table table = this.table;
+		int slot = table.find(key);
+		if (slot >= 0) {
+			final Object old = table.values.getAndSet(slot, value);
+			if (old != DELETED)
+				return (V) old;
+			size++;
+			return null;
+		}
+		if (table.used + 1 > table.threshold) {
+			table = rebuild(table, size + 1);
+			slot = table.find(key);
+		}
+		slot = -slot - 1;
+		// the key must be visible before the value is published
+		table.keys[slot] = key;
+		table.values.set(slot, value);
+		table.used++;
+		size++;
+		return null;
+	}
+
+	/**
+	 * Removes the value associated with <tt>key</tt>
+	 * 
+	 * @param key
+	 *            the key
+	 * @return the removed value or <tt>null</tt>
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized V remove(int key) {
+		final Table table = this.table;
+		final int slot = table.find(key);
+		if (slot < 0)
+			return null;
+		final Object old = table.values.getAndSet(slot, DELETED);
+		if (old == DELETED)
+			return null;
+		size--;
+		return (V) old;
+	}
+
+	/**
+	 * Removes the entry for <tt>key</tt> only if it is currently mapped to
+	 * <tt>value</tt> (compared by identity)
+	 * 
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the expected value
+	 * @return true if the entry was removed
+	 */
+	public synchronized boolean remove(int key, V value) {
+		final Table table = this.table;
+		final int slot = table.find(key);
+		if (slot < 0)
+			return false;
+		if (!table.values.compareAndSet(slot, value, DELETED))
+			return false;
+		size--;
+		return true;
+	}
+
+	/**
+	 * @return the amount of entries in the map
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if the map has no entries
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all entries from the map
+	 */
+	public synchronized void clear() {
+		table = new Table(DEFAULT_CAPACITY);
+		size = 0;
+	}
+
+	/**
+	 * Copies all live entries of <tt>old</tt> into a new table and publishes
+	 * it
+	 * 
+	 * @param old
+	 *            the old table
+	 * @param expected
+	 *            the expected amount of entries
+	 * @return the new table
+	 */
+	private Table rebuild(Table old, int expected) {
+		final Table table = new Table(capacity(expected));
+		for (int i = 0; i < old.keys.length; i++) {
+			final Object value = old.values.get(i);
+			if (value == null || value == DELETED)
+				continue;
+			final int slot = -table.find(old.keys[i]) - 1;
+			table.keys[slot] = old.keys[i];
+			table.values.set(slot, value);
+			table.used++;
+		}
+		this.table = table;
+		return table;
+	}
+
+	/**
+	 * @param expected
+	 *            the expected amount of entries
+	 * @return the table capacity for <tt>expected</tt> entries
+	 */
+	private static int capacity(int expected) {
+		int capacity = DEFAULT_CAPACITY;
+		while (capacity * LOAD_FACTOR < expected)
+			capacity <<= 1;
+		return capacity;
+	}
+
+	/**
+	 * Spreads the key bits, since object IDs are normally sequential
+	 * 
+	 * @param key
+	 *            the key
+	 * @return the hash
+	 */
+	private static int hash(int key) {
+		final int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * An hash table
+	 * 
+	 * @author <a href="http://www.rogiel.com">Rogiel</a>
+	 */
+	private static class Table {
+		/**
+		 * The keys. An key is written once, before its value is published.
+		 */
+		private final int[] keys;
+		/**
+		 * The values. <tt>null</tt> indicates an empty slot.
+		 */
+		private final AtomicReferenceArray<Object> values;
+		/**
+		 * The table mask (capacity - 1)
+		 */
+		private final int mask;
+		/**
+		 * The size at which the table must be rebuilt
+		 */
+		private final int threshold;
+		/**
+		 * The amount of claimed slots, including deleted ones. Only accessed
+		 * by writers.
+		 */
+		private int used;
+
+		/**
+		 * @param capacity
+		 *            the table capacity. Must be a power of two.
+		 */
+		public Table(int capacity) {
+			this.keys = new int[capacity];
+			this.values = new AtomicReferenceArray<Object>(capacity);
+			this.mask = capacity - 1;
+			this.threshold = (int) (capacity * LOAD_FACTOR);
+		}
+
+		/**
+		 * @param key
+		 *            the key
+		 * @return the slot claimed by <tt>key</tt> or, if none,
+		 *         <tt>-(slot + 1)</tt> where <tt>slot</tt> is the empty slot
+		 *         where it would be inserted
+		 */
+		public int find(int key) {
+			int slot = hash(key) & mask;
+			while (values.get(slot) != null) {
+				if (keys[slot] == key)
+					return slot;
+				slot = (slot + 1) & mask;
+			}
+			return -slot - 1;
+		}
+	}
+}
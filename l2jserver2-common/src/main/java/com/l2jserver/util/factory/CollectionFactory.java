@@ -18,18 +18,25 @@ package com.l2jserver.util.factory;
 
 import java.lang.ref.ReferenceQueue;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import javolution.util.FastList;
 import javolution.util.FastMap;
 import javolution.util.FastSet;
 
+import com.google.common.collect.MapMaker;
+
 /**
  * Factory class to create {@link Collection} instances.
  * 
@@ -58,6 +65,19 @@ public class CollectionFactory {
 		return new FastSet<T>();
 	}
 
+	/**
+	 * Creates a new concurrent set of type <tt>T</tt>. Reads never block and
+	 * iterators are weakly consistent: they never throw
+	 * {@link java.util.ConcurrentModificationException}.
+	 * 
+	 * @param <T>
+	 *            the type
+	 * @return the created set
+	 */
+	public static final <T> Set<T> newConcurrentSet() {
+		return Collections.newSetFromMap(new ConcurrentHashMap<T, Boolean>());
+	}
+
 	/**
 	 * Creates a new concurrent queue of type <tt>T</tt>
 	 * 
@@ -69,6 +89,17 @@ public class CollectionFactory {
 		return new ConcurrentLinkedQueue<T>();
 	}
 
+	/**
+	 * Creates a new unbounded blocking queue of type <tt>T</tt>
+	 * 
+	 * @param <T>
+	 *            the type
+	 * @return the created queue
+	 */
+	public static final <T> BlockingQueue<T> newBlockingQueue() {
+		return new LinkedBlockingQueue<T>();
+	}
+
 	/**
 	 * Creates a new priority queue of type <tt>T</tt>
 	 * 
@@ -105,6 +136,20 @@ public class CollectionFactory {
 		return new FastMap<K, V>();
 	}
 
+	/**
+	 * Creates a new concurrent map. Reads never block and iterators are
+	 * weakly consistent.
+	 * 
+	 * @param <K>
+	 *            the key type
+	 * @param <V>
+	 *            the value type
+	 * @return the new map
+	 */
+	public static final <K, V> Map<K, V> newConcurrentMap() {
+		return new ConcurrentHashMap<K, V>();
+	}
+
 	/**
 	 * Creates a new weak map.
 	 * 
@@ -117,4 +162,17 @@ public class CollectionFactory {
 	public static final <K, V> Map<K, V> newWeakMap() {
 		return new WeakHashMap<K, V>();
 	}
+
+	/**
+	 * Creates a new concurrent weak map. Keys are compared by identity.
+	 * 
+	 * @param <K>
+	 *            the key type
+	 * @param <V>
+	 *            the value type
+	 * @return the new map
+	 */
+	public static final <K, V> ConcurrentMap<K, V> newConcurrentWeakMap() {
+		return new MapMaker().weakKeys().makeMap();
+	}
 }
@@ -0,0 +1,66 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.util.collection;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ConcurrentIntObjectMap}
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public class ConcurrentIntObjectMapTest {
+	/**
+	 * Test inserting, retrieving and removing values
+	 */
+	@Test
+	public void testPutGetRemove() {
+		final ConcurrentIntObjectMap<Integer> map = new ConcurrentIntObjectMap<Integer>();
+		for (int i = 0; i < 1000; i++) {
+			Assert.assertNull(map.put(i, i));
+		}
+		for (int i = 0; i < 1000; i += 2) {
+			Assert.assertEquals(Integer.valueOf(i), map.remove(i));
+		}
+		Assert.assertEquals(500, map.size());
+		for (int i = 0; i < 1000; i++) {
+			if (i % 2 == 0)
+				Assert.assertNull(map.get(i));
+			else
+				Assert.assertEquals(Integer.valueOf(i), map.get(i));
+		}
+		// re-adding a removed key
+		Assert.assertNull(map.put(0, 10));
+		Assert.assertEquals(Integer.valueOf(10), map.get(0));
+		Assert.assertEquals(501, map.size());
+	}
+
+	/**
+	 * Test conditional removal
+	 */
+	@Test
+	public void testRemoveValue() {
+		final ConcurrentIntObjectMap<String> map = new ConcurrentIntObjectMap<String>();
+		final String value = "value";
+		map.put(1, value);
+		Assert.assertFalse(map.remove(1, new String("value")));
+		Assert.assertTrue(map.remove(1, value));
+		Assert.assertTrue(map.isEmpty());
+	}
+}
@@ -16,11 +16,18 @@
  */
 package com.l2jserver.game.net;
 
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.DownstreamMessageEvent;
+import org.jboss.netty.channel.MessageEvent;
 
 import com.l2jserver.game.net.codec.Lineage2Decrypter;
 import com.l2jserver.game.net.codec.Lineage2Encrypter;
+import com.l2jserver.game.net.codec.Lineage2OutboundBatcher;
 import com.l2jserver.game.net.codec.Lineage2PacketReader;
 import com.l2jserver.game.net.codec.Lineage2PacketWriter;
 import com.l2jserver.game.net.packet.server.SM_ACTION_FAILED;
@@ -42,7 +49,10 @@ import com.l2jserver.service.network.model.Lineage2CryptographyKey;
 import com.l2jserver.service.network.model.Lineage2Session;
 import com.l2jserver.service.network.model.ProtocolVersion;
 import com.l2jserver.service.network.model.SystemMessage;
+import com.l2jserver.service.network.model.packet.BroadcastPacket;
 import com.l2jserver.service.network.model.packet.ServerPacket;
+import com.l2jserver.service.network.model.packet.UrgentPacket;
+import com.l2jserver.util.factory.CollectionFactory;
 import com.l2jserver.util.html.markup.HtmlTemplate;
 
 /**
@@ -51,6 +61,10 @@ import com.l2jserver.util.html.markup.HtmlTemplate;
  * <p>
  * This class also provides handy methods for {@link #write(ServerPacket)
  * writing} packets.
+ * <p>
+ * Packets can be written by any thread. They are handed to the channel
+ * pipeline by a single thread at a time, in the order they were written, so
+ * that frames are encrypted and queued on the socket in the same order.
  * 
  * @author <a href="http://www.rogiel.com">Rogiel</a>
  */
@@ -68,6 +82,16 @@ public class Lineage2ClientImpl implements Lineage2Client {
 	 */
 	private Lineage2Session session;
 
+	/**
+	 * The write requests not yet handed to the channel pipeline
+	 */
+	private final Queue<MessageEvent> outbound = CollectionFactory
+			.newConcurrentQueue();
+	/**
+	 * Whether a thread is handing {@link #outbound} requests to the pipeline
+	 */
+	private final AtomicBoolean writing = new AtomicBoolean();
+
 	/**
 	 * The client supported protocol version
 	 */
@@ -218,7 +242,11 @@ public class Lineage2ClientImpl implements Lineage2Client {
 	 * <p>
 	 * Please note that this method will <b>not</b> block for the packets to be
 	 * sent. It is possible to check if the packet was sent successfully using
-	 * the {@link ChannelFuture}.
+	 * the {@link ChannelFuture}. If another thread is already writing to this
+	 * client, the packet is written by that thread instead.
+	 * <p>
+	 * Writing an {@link UrgentPacket} flushes every packet batched for this
+	 * client.
 	 * 
 	 * @param packet
 	 *            the packet
@@ -226,7 +254,50 @@ public class Lineage2ClientImpl implements Lineage2Client {
 	 *         has been written.
 	 */
 	public ChannelFuture write(ServerPacket packet) {
-		return channel.write(packet);
+		final ChannelFuture future = Channels.future(channel);
+		outbound.add(new DownstreamMessageEvent(channel, future, packet,
+				channel.getRemoteAddress()));
+		// only one thread drains the queue at a time, the others return
+		// immediately. the queue is checked again once the writer leaves so
+		// that no packet is left behind
+		while (!outbound.isEmpty() && writing.compareAndSet(false, true)) {
+			try {
+				boolean urgent = false;
+				MessageEvent e;
+				while ((e = outbound.poll()) != null) {
+					channel.getPipeline().sendDownstream(e);
+					urgent |= isUrgent((ServerPacket) e.getMessage());
+				}
+				if (urgent)
+					flush();
+			} finally {
+				writing.set(false);
+			}
+		}
+		return future;
+	}
+
+	/**
+	 * @param packet
+	 *            the packet
+	 * @return <code>true</code> if the packet, or the packet wrapped by an
+	 *         {@link BroadcastPacket}, is an {@link UrgentPacket}
+	 */
+	private static boolean isUrgent(ServerPacket packet) {
+		if (packet instanceof BroadcastPacket)
+			packet = ((BroadcastPacket) packet).getPacket();
+		return packet instanceof UrgentPacket;
+	}
+
+	/**
+	 * Writes all packets batched for this client. Batched packets are
+	 * flushed periodically by the network service, this method should only
+	 * be used when an packet must be sent immediately.
+	 */
+	public void flush() {
+		final Lineage2OutboundBatcher batcher = getOutboundBatcher();
+		if (batcher != null)
+			batcher.flush();
 	}
 
 	/**
@@ -435,6 +506,15 @@ public class Lineage2ClientImpl implements Lineage2Client {
 				Lineage2PacketWriter.HANDLER_NAME);
 	}
 
+	/**
+	 * @return the client {@link Lineage2OutboundBatcher} or <code>null</code>
+	 *         if batching is disabled
+	 */
+	public Lineage2OutboundBatcher getOutboundBatcher() {
+		return (Lineage2OutboundBatcher) channel.getPipeline().get(
+				Lineage2OutboundBatcher.HANDLER_NAME);
+	}
+
 	@Override
 	public String toString() {
 		return "Lineage2Client [channel=" + channel + ", characterID="
@@ -0,0 +1,136 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.game.net.codec;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+
+import com.l2jserver.service.network.model.Lineage2CryptographyKey;
+
+/**
+ * The Lineage II XOR cipher. Data is processed directly on the buffer backing
+ * array, without per-byte {@link ChannelBuffer} calls. Buffers without an
+ * accessible array are copied to a temporary array.
+ * <p>
+ * This class holds no state and performs no synchronization. Each
+ * {@link Lineage2CryptographyKey} must be used by a single thread at a time.
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public class Lineage2Cipher {
+	/**
+	 * Encrypts <tt>length</tt> bytes from <tt>source</tt> into
+	 * <tt>target</tt>. Both buffers can be the same instance. The key is
+	 * updated afterwards.
+	 * 
+	 * @param key
+	 *            the cryptography key
+	 * @param source
+	 *            the plain data buffer
+	 * @param sourceIndex
+	 *            the plain data first byte index
+	 * @param target
+	 *            the encrypted data buffer
+	 * @param targetIndex
+	 *            the encrypted data first byte index
+	 * @param length
+	 *            the data length
+	 */
+	public static void encrypt(Lineage2CryptographyKey key,
+			ChannelBuffer source, int sourceIndex, ChannelBuffer target,
+			int targetIndex, int length) {
+		if (source != target)
+			target.setBytes(targetIndex, source, sourceIndex, length);
+		if (target.hasArray()) {
+			encrypt(key.key, target.array(), target.arrayOffset()
+					+ targetIndex, length);
+		} else {
+			final byte[] data = new byte[length];
+			target.getBytes(targetIndex, data);
+			encrypt(key.key, data, 0, length);
+			target.setBytes(targetIndex, data);
+		}
+		key.update(length);
+	}
+
+	/**
+	 * Decrypts, in place, <tt>length</tt> bytes from <tt>buffer</tt>. The key
+	 * is updated afterwards.
+	 * 
+	 * @param key
+	 *            the cryptography key
+	 * @param buffer
+	 *            the encrypted data buffer
+	 * @param index
+	 *            the encrypted data first byte index
+	 * @param length
+	 *            the data length
+	 */
+	public static void decrypt(Lineage2CryptographyKey key,
+			ChannelBuffer buffer, int index, int length) {
+		if (buffer.hasArray()) {
+			decrypt(key.key, buffer.array(), buffer.arrayOffset() + index,
+					length);
+		} else {
+			final byte[] data = new byte[length];
+			buffer.getBytes(index, data);
+			decrypt(key.key, data, 0, length);
+			buffer.setBytes(index, data);
+		}
+		key.update(length);
+	}
+
+	/**
+	 * Encrypts, in place, <tt>length</tt> bytes of <tt>data</tt>
+	 * 
+	 * @param key
+	 *            the raw key
+	 * @param data
+	 *            the data array
+	 * @param offset
+	 *            the data first byte offset
+	 * @param length
+	 *            the data length
+	 */
+	static void encrypt(byte[] key, byte[] data, int offset, int length) {
+		int previous = 0;
+		for (int i = 0; i < length; i++) {
+			previous ^= data[offset + i] ^ key[i & 15];
+			data[offset + i] = (byte) previous;
+		}
+	}
+
+	/**
+	 * Decrypts, in place, <tt>length</tt> bytes of <tt>data</tt>
+	 * 
+	 * @param key
+	 *            the raw key
+	 * @param data
+	 *            the data array
+	 * @param offset
+	 *            the data first byte offset
+	 * @param length
+	 *            the data length
+	 */
+	static void decrypt(byte[] key, byte[] data, int offset, int length) {
+		int previous = 0;
+		for (int i = 0; i < length; i++) {
+			final int encrypted = data[offset + i];
+			data[offset + i] = (byte) (encrypted ^ key[i & 15] ^ previous);
+			previous = encrypted;
+		}
+	}
+}
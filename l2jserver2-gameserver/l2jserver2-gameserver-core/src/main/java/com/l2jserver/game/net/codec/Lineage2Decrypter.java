@@ -24,7 +24,8 @@ import org.jboss.netty.handler.codec.oneone.OneToOneDecoder;
 import com.l2jserver.service.network.model.Lineage2CryptographyKey;
 
 /**
- * Decrypts encrypted Lineage II packets
+ * Decrypts encrypted Lineage II packets. The key is owned by this handler and
+ * only used from the channel I/O thread, no synchronization is needed.
  * 
  * @author <a href="http://www.rogiel.com">Rogiel</a>
  */
@@ -51,19 +52,9 @@ public class Lineage2Decrypter extends OneToOneDecoder {
 		if (!enabled)
 			return msg;
 		final ChannelBuffer buffer = (ChannelBuffer) msg;
-
-		final int offset = buffer.readerIndex();
-		final int size = buffer.readableBytes();
-		int temp = 0;
-		synchronized (key) {
-			for (int i = 0; i < size; i++) {
-				int temp2 = buffer.getByte(offset + i) & 0xFF;
-				buffer.setByte(offset + i, (temp2 ^ key.get(i) ^ temp));
-				temp = temp2;
-			}
-			key.update(size);
-		}
-
+		// decoding only happens on the channel I/O thread
+		Lineage2Cipher.decrypt(key, buffer, buffer.readerIndex(),
+				buffer.readableBytes());
 		return buffer;
 	}
 
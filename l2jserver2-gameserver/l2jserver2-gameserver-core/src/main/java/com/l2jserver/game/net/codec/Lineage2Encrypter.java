@@ -17,6 +17,8 @@
 package com.l2jserver.game.net.codec;
 
 import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.buffer.ReadOnlyChannelBuffer;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.handler.codec.oneone.OneToOneEncoder;
@@ -24,7 +26,13 @@ import org.jboss.netty.handler.codec.oneone.OneToOneEncoder;
 import com.l2jserver.service.network.model.Lineage2CryptographyKey;
 
 /**
- * Encrypts Lineage II packets
+ * Encrypts Lineage II packets. Read-only buffers are shared among several
+ * connections, their encrypted data is written to a new buffer instead.
+ * <p>
+ * This handler holds no lock. Writes to a connection are handed to the
+ * pipeline by one thread at a time (see
+ * {@link com.l2jserver.game.net.Lineage2ClientImpl}), so frames are queued on
+ * the socket in the order they were encrypted.
  * 
  * @author <a href="http://www.rogiel.com">Rogiel</a>
  */
@@ -51,20 +59,19 @@ public class Lineage2Encrypter extends OneToOneEncoder {
 		if (!enabled)
 			return msg;
 		final ChannelBuffer buffer = (ChannelBuffer) msg;
-
-		final int offset = buffer.readerIndex() + 2; // skip header
-		final int size = buffer.readableBytes() - 2;
-		int temp = 0, temp2 = 0;
-		synchronized (key) {
-			for (int i = 0; i < size; i++) {
-				temp2 = buffer.getByte(offset + i) & 0xFF;
-				temp = temp2 ^ key.get(i) ^ temp;
-				buffer.setByte(offset + i, (byte) temp);
-			}
-			key.update(size);
+		final ChannelBuffer target;
+		if (buffer instanceof ReadOnlyChannelBuffer) {
+			target = ChannelBuffers.buffer(buffer.order(),
+					buffer.readableBytes());
+			target.writeShort(buffer.getShort(buffer.readerIndex()));
+			target.writerIndex(buffer.readableBytes());
+		} else {
+			target = buffer;
 		}
 
-		return msg;
+		Lineage2Cipher.encrypt(key, buffer, buffer.readerIndex() + 2, target,
+				target.readerIndex() + 2, buffer.readableBytes() - 2);
+		return target;
 	}
 
 	/**
@@ -27,6 +27,16 @@ import org.jboss.netty.handler.codec.frame.FrameDecoder;
 /**
  * This decoder parses Lineage II frames. Each frame is has a header of 2 bytes
  * unsigned short.
+ * <p>
+ * The length is read in place and the frame is returned as a slice of the
+ * cumulation buffer, without copying. The channel buffer factory should create
+ * {@link ByteOrder#LITTLE_ENDIAN} buffers, so that the slice can be read
+ * directly. Otherwise, the frame bytes are wrapped in a little-endian view (or
+ * copied, if the buffer has no accessible backing array).
+ * <p>
+ * The returned frame shares its content with the cumulation buffer and is
+ * only valid until the next message is received. Handlers must read it
+ * synchronously, as the {@link Lineage2PacketReader} does.
  * 
  * @author <a href="http://www.rogiel.com">Rogiel</a>
  */
@@ -38,24 +48,44 @@ public class Lineage2FrameDecoder extends FrameDecoder {
 
 	@Override
 	protected Object decode(ChannelHandlerContext ctx, Channel channel,
-			ChannelBuffer oldBuffer) throws Exception {
-		if (oldBuffer.readableBytes() < 2)
+			ChannelBuffer buffer) throws Exception {
+		if (buffer.readableBytes() < HEADER_SIZE)
 			return null;
-		ChannelBuffer buffer = ChannelBuffers.wrappedBuffer(oldBuffer
-				.toByteBuffer().order(ByteOrder.LITTLE_ENDIAN));
-
-		buffer.markReaderIndex();
-		final int pending = buffer.readUnsignedShort() - HEADER_SIZE;
-		if (pending == 0)
-			return null;
-		if (buffer.readableBytes() < pending) {
-			buffer.resetReaderIndex();
+		final int index = buffer.readerIndex();
+		final int length = buffer.getUnsignedByte(index)
+				| buffer.getUnsignedByte(index + 1) << 8;
+		if (length <= HEADER_SIZE) {
+			// empty frame, discard the header and keep decoding
+			buffer.skipBytes(HEADER_SIZE);
 			return null;
 		}
+		if (buffer.readableBytes() < length)
+			return null;
+		buffer.skipBytes(length);
+		return frame(buffer, index + HEADER_SIZE, length - HEADER_SIZE);
+	}
 
-		final ChannelBuffer b = buffer.copy(buffer.readerIndex(), pending);
-		oldBuffer.skipBytes(pending + HEADER_SIZE);
-		return ChannelBuffers.wrappedBuffer(b.toByteBuffer().order(
-				ByteOrder.LITTLE_ENDIAN));
+	/**
+	 * Creates an {@link ByteOrder#LITTLE_ENDIAN} frame from the given region
+	 * of <tt>buffer</tt>
+	 * 
+	 * @param buffer
+	 *            the cumulation buffer
+	 * @param index
+	 *            the frame first byte index
+	 * @param length
+	 *            the frame length
+	 * @return the frame buffer
+	 */
+	private ChannelBuffer frame(ChannelBuffer buffer, int index, int length) {
+		if (buffer.order() == ByteOrder.LITTLE_ENDIAN)
+			return buffer.slice(index, length);
+		if (buffer.hasArray())
+			return ChannelBuffers.wrappedBuffer(ByteOrder.LITTLE_ENDIAN,
+					buffer.array(), buffer.arrayOffset() + index, length);
+		final ChannelBuffer frame = ChannelBuffers.buffer(
+				ByteOrder.LITTLE_ENDIAN, length);
+		frame.writeBytes(buffer, index, length);
+		return frame;
 	}
 }
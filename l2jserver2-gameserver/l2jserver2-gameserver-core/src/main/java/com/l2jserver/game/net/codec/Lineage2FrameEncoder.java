@@ -17,13 +17,15 @@
 package com.l2jserver.game.net.codec;
 
 import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ReadOnlyChannelBuffer;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.handler.codec.oneone.OneToOneEncoder;
 
 /**
  * This encoder creates Lineage II frames. Each frame is has a header of 2 bytes
- * unsigned short.
+ * unsigned short. Shared read-only buffers already have their header set and are
+ * never modified.
  * 
  * @author <a href="http://www.rogiel.com">Rogiel</a>
  */
@@ -34,7 +36,8 @@ public class Lineage2FrameEncoder extends OneToOneEncoder {
 		if (!(msg instanceof ChannelBuffer))
 			return msg;
 		final ChannelBuffer buffer = (ChannelBuffer) msg;
-		buffer.setShort(0, buffer.readableBytes());
+		if (!(buffer instanceof ReadOnlyChannelBuffer))
+			buffer.setShort(0, buffer.readableBytes());
 
 		return buffer;
 	}
@@ -0,0 +1,206 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.game.net.codec;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.List;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.ChannelEvent;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelHandler;
+
+import com.l2jserver.util.factory.CollectionFactory;
+
+/**
+ * Collects encoded frames and writes them at once in a single gathering write.
+ * Pending frames are written once:
+ * <ul>
+ * <li>{@link #flush()} is called, normally by the network service at a fixed
+ * interval, which caps the latency of any packet;</li>
+ * <li>a received client packet has been handled, so that responses are not
+ * delayed;</li>
+ * <li>the amount of pending bytes exceeds the batch size;</li>
+ * <li>the channel is being closed or disconnected.</li>
+ * </ul>
+ * Frames still pending once the channel has been closed are failed with an
+ * {@link ClosedChannelException}.
+ * <p>
+ * This handler must be the first in the pipeline, so it receives fully
+ * encoded and encrypted frames.
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public class Lineage2OutboundBatcher extends SimpleChannelHandler {
+	/**
+	 * The handler name
+	 */
+	public static final String HANDLER_NAME = "outbound.batcher";
+
+	/**
+	 * The maximum amount of bytes held before flushing
+	 */
+	private final int size;
+	/**
+	 * The pending write requests
+	 */
+	private final List<MessageEvent> pending = CollectionFactory.newList();
+	/**
+	 * The amount of pending bytes
+	 */
+	private int pendingSize;
+	/**
+	 * The handler context, set once the first frame is queued
+	 */
+	private ChannelHandlerContext context;
+
+	/**
+	 * @param size
+	 *            the maximum amount of bytes held before flushing
+	 */
+	public Lineage2OutboundBatcher(int size) {
+		this.size = size;
+	}
+
+	@Override
+	public void writeRequested(ChannelHandlerContext ctx, MessageEvent e)
+			throws Exception {
+		if (!(e.getMessage() instanceof ChannelBuffer)
+				|| !ctx.getChannel().isOpen()) {
+			flush(ctx);
+			ctx.sendDownstream(e);
+			return;
+		}
+		final boolean full;
+		synchronized (pending) {
+			context = ctx;
+			pending.add(e);
+			pendingSize += ((ChannelBuffer) e.getMessage()).readableBytes();
+			full = pendingSize >= size;
+		}
+		if (full)
+			flush(ctx);
+	}
+
+	@Override
+	public void messageReceived(ChannelHandlerContext ctx, MessageEvent e)
+			throws Exception {
+		ctx.sendUpstream(e);
+		// responses to the client packet are written right away
+		flush(ctx);
+	}
+
+	@Override
+	public void disconnectRequested(ChannelHandlerContext ctx,
+			ChannelStateEvent e) throws Exception {
+		flush(ctx);
+		ctx.sendDownstream(e);
+	}
+
+	@Override
+	public void closeRequested(ChannelHandlerContext ctx, ChannelStateEvent e)
+			throws Exception {
+		flush(ctx);
+		ctx.sendDownstream(e);
+	}
+
+	@Override
+	public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e)
+			throws Exception {
+		final MessageEvent[] events;
+		synchronized (pending) {
+			events = pending.toArray(new MessageEvent[pending.size()]);
+			reset();
+		}
+		for (final MessageEvent event : events) {
+			event.getFuture().setFailure(new ClosedChannelException());
+		}
+		ctx.sendUpstream(e);
+	}
+
+	/**
+	 * Writes all pending frames
+	 */
+	public void flush() {
+		final ChannelHandlerContext ctx;
+		synchronized (pending) {
+			ctx = context;
+		}
+		if (ctx != null)
+			flush(ctx);
+	}
+
+	/**
+	 * Writes all pending frames in a single write
+	 * 
+	 * @param ctx
+	 *            the handler context
+	 */
+	private void flush(ChannelHandlerContext ctx) {
+		// writes are issued while holding the lock, otherwise two concurrent
+		// flushes could reorder frames
+		synchronized (pending) {
+			if (pending.isEmpty())
+				return;
+			if (pending.size() == 1) {
+				final ChannelEvent e = pending.get(0);
+				reset();
+				ctx.sendDownstream(e);
+				return;
+			}
+			final MessageEvent[] events = pending
+					.toArray(new MessageEvent[pending.size()]);
+			final ChannelBuffer[] buffers = new ChannelBuffer[events.length];
+			for (int i = 0; i < events.length; i++) {
+				buffers[i] = (ChannelBuffer) events[i].getMessage();
+			}
+			reset();
+
+			final ChannelFuture future = Channels.future(ctx.getChannel());
+			future.addListener(new ChannelFutureListener() {
+				@Override
+				public void operationComplete(ChannelFuture future)
+						throws Exception {
+					for (final MessageEvent e : events) {
+						if (future.isSuccess()) {
+							e.getFuture().setSuccess();
+						} else if (future.isCancelled()) {
+							e.getFuture().cancel();
+						} else {
+							e.getFuture().setFailure(future.getCause());
+						}
+					}
+				}
+			});
+			Channels.write(ctx, future, ChannelBuffers.wrappedBuffer(buffers));
+		}
+	}
+
+	/**
+	 * Clears the pending frames
+	 */
+	private void reset() {
+		pending.clear();
+		pendingSize = 0;
+	}
+}
@@ -25,12 +25,16 @@ import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.handler.codec.oneone.OneToOneEncoder;
 
 import com.l2jserver.service.network.model.Lineage2Client;
+import com.l2jserver.service.network.model.packet.BroadcastPacket;
 import com.l2jserver.service.network.model.packet.ServerPacket;
 
 /**
  * This encoder writes the frame content and encodes the packet in it. Each
  * packet has an fixed single opcode byte. Once the packet opcode has been
  * written, packet data is written by the {@link ServerPacket} class.
+ * <p>
+ * {@link BroadcastPacket}s are not serialized again, the shared encoded
+ * buffer is passed down the pipeline instead.
  * 
  * @author <a href="http://www.rogiel.com">Rogiel</a>
  */
@@ -48,6 +52,8 @@ public class Lineage2PacketWriter extends OneToOneEncoder {
 	@Override
 	protected Object encode(ChannelHandlerContext ctx, Channel channel,
 			Object msg) throws Exception {
+		if (msg instanceof BroadcastPacket)
+			return ((BroadcastPacket) msg).encode(connection);
 		if (!(msg instanceof ServerPacket))
 			return msg;
 		final ChannelBuffer buffer = ChannelBuffers.dynamicBuffer(
@@ -25,6 +25,7 @@ import com.l2jserver.model.server.AttackHit;
 import com.l2jserver.model.world.Actor;
 import com.l2jserver.service.network.model.Lineage2Client;
 import com.l2jserver.service.network.model.packet.AbstractServerPacket;
+import com.l2jserver.service.network.model.packet.UrgentPacket;
 import com.l2jserver.util.factory.CollectionFactory;
 
 /**
@@ -33,7 +34,8 @@ import com.l2jserver.util.factory.CollectionFactory;
  * @author <a href="http://www.rogiel.com">Rogiel</a>
  * @see AttackHit
  */
-public class SM_ACTOR_ATTACK extends AbstractServerPacket {
+public class SM_ACTOR_ATTACK extends AbstractServerPacket implements
+		UrgentPacket {
 	/**
 	 * The packet OPCODE
 	 */
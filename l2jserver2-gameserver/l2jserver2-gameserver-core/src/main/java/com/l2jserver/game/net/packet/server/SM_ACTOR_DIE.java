@@ -22,6 +22,7 @@ import com.l2jserver.model.server.AttackHit;
 import com.l2jserver.model.world.Actor;
 import com.l2jserver.service.network.model.Lineage2Client;
 import com.l2jserver.service.network.model.packet.AbstractServerPacket;
+import com.l2jserver.service.network.model.packet.UrgentPacket;
 
 /**
  * This packet informs the client of an attack issued
@@ -29,7 +30,8 @@ import com.l2jserver.service.network.model.packet.AbstractServerPacket;
  * @author <a href="http://www.rogiel.com">Rogiel</a>
  * @see AttackHit
  */
-public class SM_ACTOR_DIE extends AbstractServerPacket {
+public class SM_ACTOR_DIE extends AbstractServerPacket implements
+		UrgentPacket {
 	/**
 	 * The packet OPCODE
 	 */
@@ -23,6 +23,7 @@ import com.l2jserver.model.template.ActorTemplate;
 import com.l2jserver.model.template.actor.ActorSex;
 import com.l2jserver.model.world.actor.ActorSkillContainer;
 import com.l2jserver.model.world.actor.stat.ActorStats;
+import com.l2jserver.util.geometry.Point3D;
 
 /**
  * Abstract {@link Actor} class.
@@ -66,6 +67,10 @@ public abstract class Actor extends PositionableObject {
 	 * State of the actor. Will be null if it is idle
 	 */
 	private transient ActorState state;
+	/**
+	 * The point the actor is moving, teleporting etc...
+	 */
+	private transient Point3D targetLocation;
 
 	/**
 	 * The valid states for an actor
@@ -229,6 +234,21 @@ public abstract class Actor extends PositionableObject {
 		this.state = state;
 	}
 
+	/**
+	 * @return the targetLocation
+	 */
+	public Point3D getTargetLocation() {
+		return targetLocation;
+	}
+
+	/**
+	 * @param targetLocation
+	 *            the targetLocation to set
+	 */
+	public void setTargetLocation(Point3D targetLocation) {
+		this.targetLocation = targetLocation;
+	}
+
 	/**
 	 * @return true if character is doing nothing
 	 */
@@ -32,7 +32,6 @@ import com.l2jserver.model.world.character.CharacterFriendList;
 import com.l2jserver.model.world.character.CharacterInventory;
 import com.l2jserver.model.world.character.CharacterShortcutContainer;
 import com.l2jserver.model.world.character.CharacterStats;
-import com.l2jserver.util.geometry.Point3D;
 
 /**
  * This class represents a playable character in Lineage II world.
@@ -161,11 +160,6 @@ public class L2Character extends Player {
 	 */
 	private transient ActorID<?> targetID;
 
-	/**
-	 * The point the player is moving, teleporting etc...
-	 */
-	private transient Point3D targetLocation;
-
 	/**
 	 * Creates a new instance
 	 * 
@@ -442,21 +436,6 @@ public class L2Character extends Player {
 		return !isDead();
 	}
 
-	/**
-	 * @return the targetLocation
-	 */
-	public Point3D getTargetLocation() {
-		return targetLocation;
-	}
-
-	/**
-	 * @param targetLocation
-	 *            the targetLocation to set
-	 */
-	public void setTargetLocation(Point3D targetLocation) {
-		this.targetLocation = targetLocation;
-	}
-
 	/**
 	 * @return the inventory
 	 */
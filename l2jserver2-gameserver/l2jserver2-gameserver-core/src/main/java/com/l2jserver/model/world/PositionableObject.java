@@ -16,6 +16,7 @@
  */
 package com.l2jserver.model.world;
 
+import com.l2jserver.model.world.positionable.KnownList;
 import com.l2jserver.util.geometry.Coordinate;
 import com.l2jserver.util.geometry.Point3D;
 
@@ -30,6 +31,11 @@ public abstract class PositionableObject extends AbstractObject {
 	 * The point this object is currently in
 	 */
 	private Point3D point;
+	/**
+	 * The objects this object currently knows about. Created on first use,
+	 * since only objects placed in the world ever know about others.
+	 */
+	private transient volatile KnownList knownList;
 
 	/**
 	 * @return the coordinate point
@@ -47,6 +53,21 @@ public abstract class PositionableObject extends AbstractObject {
 		this.point = point;
 	}
 
+	/**
+	 * @return the objects this object currently knows about
+	 */
+	public KnownList getKnownList() {
+		KnownList knownList = this.knownList;
+		if (knownList == null) {
+			synchronized (this) {
+				knownList = this.knownList;
+				if (knownList == null)
+					this.knownList = knownList = new KnownList(this);
+			}
+		}
+		return knownList;
+	}
+
 	/**
 	 * @return the position coodinate
 	 */
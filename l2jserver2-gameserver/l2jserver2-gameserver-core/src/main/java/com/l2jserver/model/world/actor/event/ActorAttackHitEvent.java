@@ -20,6 +20,8 @@ import com.l2jserver.model.id.ObjectID;
 import com.l2jserver.model.server.AttackHit;
 import com.l2jserver.model.world.Actor;
 import com.l2jserver.model.world.WorldObject;
+import com.l2jserver.service.game.world.event.WorldEventPriority;
+import com.l2jserver.service.game.world.event.WorldEventPriority.Priority;
 
 /**
  * Event dispatcher once an actor has received/dealt an attack hit.
@@ -28,6 +30,7 @@ import com.l2jserver.model.world.WorldObject;
  * 
  * @author <a href="http://www.rogiel.com">Rogiel</a>
  */
+@Priority(WorldEventPriority.HIGH)
 public class ActorAttackHitEvent implements ActorEvent {
 	/**
 	 * The spawned player
@@ -19,12 +19,15 @@ package com.l2jserver.model.world.actor.event;
 import com.l2jserver.model.id.ObjectID;
 import com.l2jserver.model.world.Actor;
 import com.l2jserver.model.world.WorldObject;
+import com.l2jserver.service.game.world.event.WorldEventPriority;
+import com.l2jserver.service.game.world.event.WorldEventPriority.Priority;
 
 /**
  * Event dispatcher once an actor has died.
  * 
  * @author <a href="http://www.rogiel.com">Rogiel</a>
  */
+@Priority(WorldEventPriority.HIGH)
 public class ActorDieEvent implements ActorEvent {
 	/**
 	 * The actor that died
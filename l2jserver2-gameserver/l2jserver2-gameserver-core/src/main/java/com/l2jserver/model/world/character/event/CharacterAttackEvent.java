@@ -22,12 +22,15 @@ import com.l2jserver.model.world.Actor;
 import com.l2jserver.model.world.L2Character;
 import com.l2jserver.model.world.Player;
 import com.l2jserver.model.world.WorldObject;
+import com.l2jserver.service.game.world.event.WorldEventPriority;
+import com.l2jserver.service.game.world.event.WorldEventPriority.Priority;
 
 /**
  * Event triggered once a character attacks something
  * 
  * @author <a href="http://www.rogiel.com">Rogiel</a>
  */
+@Priority(WorldEventPriority.HIGH)
 public class CharacterAttackEvent implements CharacterEvent {
 	/**
 	 * The character that is attacking
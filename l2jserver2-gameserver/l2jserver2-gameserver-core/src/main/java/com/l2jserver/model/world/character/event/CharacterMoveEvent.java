@@ -21,6 +21,7 @@ import com.l2jserver.model.world.Actor;
 import com.l2jserver.model.world.L2Character;
 import com.l2jserver.model.world.Player;
 import com.l2jserver.model.world.WorldObject;
+import com.l2jserver.service.game.world.event.SupersedableEvent;
 import com.l2jserver.util.geometry.Point3D;
 
 /**
@@ -28,7 +29,7 @@ import com.l2jserver.util.geometry.Point3D;
  * 
  * @author <a href="http://www.rogiel.com">Rogiel</a>
  */
-public class CharacterMoveEvent implements CharacterEvent {
+public class CharacterMoveEvent implements CharacterEvent, SupersedableEvent {
 	/**
 	 * The character that is logging in
 	 */
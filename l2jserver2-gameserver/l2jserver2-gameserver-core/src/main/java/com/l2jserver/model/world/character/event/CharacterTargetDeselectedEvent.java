@@ -21,12 +21,15 @@ import com.l2jserver.model.world.Actor;
 import com.l2jserver.model.world.L2Character;
 import com.l2jserver.model.world.Player;
 import com.l2jserver.model.world.WorldObject;
+import com.l2jserver.service.game.world.event.WorldEventPriority;
+import com.l2jserver.service.game.world.event.WorldEventPriority.Priority;
 
 /**
  * Event triggered once a character moves
  * 
  * @author <a href="http://www.rogiel.com">Rogiel</a>
  */
+@Priority(WorldEventPriority.LOW)
 public class CharacterTargetDeselectedEvent implements CharacterEvent {
 	/**
 	 * The character that is logging in
@@ -0,0 +1,114 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.model.world.positionable;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+
+import com.l2jserver.model.world.PositionableObject;
+import com.l2jserver.util.factory.CollectionFactory;
+
+/**
+ * Keeps track of all objects an {@link PositionableObject} currently knows
+ * about (that is, the objects in its vision range). The list is not refreshed
+ * automatically: it is maintained incrementally by the world service every
+ * time the object moves.
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public class KnownList implements Iterable<PositionableObject> {
+	/**
+	 * The object owning this list
+	 */
+	private final PositionableObject object;
+	/**
+	 * The set of known objects
+	 */
+	private final Set<PositionableObject> known = CollectionFactory
+			.newConcurrentSet();
+
+	/**
+	 * Creates a new instance
+	 * 
+	 * @param object
+	 *            the object owning this list
+	 */
+	public KnownList(PositionableObject object) {
+		this.object = object;
+	}
+
+	/**
+	 * @return the object owning this list
+	 */
+	public PositionableObject getObject() {
+		return object;
+	}
+
+	/**
+	 * @param other
+	 *            the other object
+	 * @return true if <tt>other</tt> is known
+	 */
+	public boolean contains(PositionableObject other) {
+		return known.contains(other);
+	}
+
+	/**
+	 * @param other
+	 *            the object that is now known
+	 * @return true if <tt>other</tt> was not known before
+	 */
+	public boolean add(PositionableObject other) {
+		return known.add(other);
+	}
+
+	/**
+	 * @param other
+	 *            the object that is no longer known
+	 * @return true if <tt>other</tt> was known before
+	 */
+	public boolean remove(PositionableObject other) {
+		return known.remove(other);
+	}
+
+	/**
+	 * Forgets all known objects
+	 */
+	public void clear() {
+		known.clear();
+	}
+
+	/**
+	 * @return the amount of known objects
+	 */
+	public int size() {
+		return known.size();
+	}
+
+	/**
+	 * @return an read-only view of the known objects
+	 */
+	public Set<PositionableObject> getObjects() {
+		return Collections.unmodifiableSet(known);
+	}
+
+	@Override
+	public Iterator<PositionableObject> iterator() {
+		return getObjects().iterator();
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.model.world.positionable;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import com.l2jserver.model.world.PositionableObject;
+
+/**
+ * Describes the changes made to an {@link KnownList} after its owner has
+ * moved: the objects that came into sight and the objects that went out of
+ * sight. Objects that were already known and are still in sight are not part
+ * of the update.
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public class KnownListUpdate {
+	/**
+	 * The objects that came into sight
+	 */
+	private final Collection<PositionableObject> entered;
+	/**
+	 * The objects that went out of sight
+	 */
+	private final Collection<PositionableObject> left;
+
+	/**
+	 * @param entered
+	 *            the objects that came into sight
+	 * @param left
+	 *            the objects that went out of sight
+	 */
+	public KnownListUpdate(Collection<PositionableObject> entered,
+			Collection<PositionableObject> left) {
+		this.entered = Collections.unmodifiableCollection(entered);
+		this.left = Collections.unmodifiableCollection(left);
+	}
+
+	/**
+	 * @return the objects that came into sight
+	 */
+	public Collection<PositionableObject> getEntered() {
+		return entered;
+	}
+
+	/**
+	 * @return the objects that went out of sight
+	 */
+	public Collection<PositionableObject> getLeft() {
+		return left;
+	}
+
+	/**
+	 * @return true if nothing has changed
+	 */
+	public boolean isEmpty() {
+		return entered.isEmpty() && left.isEmpty();
+	}
+}
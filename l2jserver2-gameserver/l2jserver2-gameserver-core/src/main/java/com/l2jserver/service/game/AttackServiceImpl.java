@@ -139,7 +139,7 @@ public class AttackServiceImpl extends AbstractService implements AttackService
 			target.setHP(target.getHP() - dealDamage);
 
 			final AttackHit hit = new AttackHit(attacker, target, damage);
-			eventDispatcher.dispatch(new ActorAttackHitEvent(hit));
+			eventDispatcher.post(new ActorAttackHitEvent(hit));
 
 			if (target.getHP() <= 0) {
 				log.debug("{} hitpoins reached zero, killing object", target);
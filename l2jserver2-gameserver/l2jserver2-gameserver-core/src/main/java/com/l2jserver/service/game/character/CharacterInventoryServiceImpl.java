@@ -51,7 +51,7 @@ public class CharacterInventoryServiceImpl extends AbstractService implements
 			// throw an exception
 		}
 		character.getInventory().add(item);
-		eventDispatcherService.dispatch(new ItemCreatedEvent(character, item));
+		eventDispatcherService.post(new ItemCreatedEvent(character, item));
 	}
 
 	@Override
@@ -60,7 +60,7 @@ public class CharacterInventoryServiceImpl extends AbstractService implements
 			// throw an exception
 		}
 		character.getInventory().add(item);
-		eventDispatcherService.dispatch(new ItemRemovedEvent(character, item));
+		eventDispatcherService.post(new ItemRemovedEvent(character, item));
 	}
 
 	@Override
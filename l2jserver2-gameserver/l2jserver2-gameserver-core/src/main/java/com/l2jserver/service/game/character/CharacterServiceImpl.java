@@ -47,6 +47,7 @@ import com.l2jserver.model.world.character.event.CharacterLeaveWorldEvent;
 import com.l2jserver.model.world.character.event.CharacterMoveEvent;
 import com.l2jserver.model.world.character.event.CharacterRunningEvent;
 import com.l2jserver.model.world.character.event.CharacterStartMovingEvent;
+import com.l2jserver.model.world.character.event.CharacterStopMoveEvent;
 import com.l2jserver.model.world.character.event.CharacterTargetDeselectedEvent;
 import com.l2jserver.model.world.character.event.CharacterTargetSelectedEvent;
 import com.l2jserver.model.world.character.event.CharacterWalkingEvent;
@@ -83,6 +84,10 @@ public class CharacterServiceImpl extends
 	private static final Logger log = LoggerFactory
 			.getLogger(CharacterServiceImpl.class);
 
+	/**
+	 * The {@link WorldService}
+	 */
+	private final WorldService worldService;
 	/**
 	 * The {@link BroadcastService}
 	 */
@@ -138,6 +143,8 @@ public class CharacterServiceImpl extends
 	// private final AIService aiService;
 
 	/**
+	 * @param worldService
+	 *            the world service
 	 * @param broadcastService
 	 *            the broadcast service
 	 * @param eventDispatcher
@@ -160,7 +167,8 @@ public class CharacterServiceImpl extends
 	 *            the character id provider
 	 */
 	@Inject
-	public CharacterServiceImpl(BroadcastService broadcastService,
+	public CharacterServiceImpl(WorldService worldService,
+			BroadcastService broadcastService,
 			WorldEventDispatcherService eventDispatcher,
 			SpawnService spawnService, NPCService npcService,
 			GameGuardService ggService, CharacterDAO characterDao,
@@ -168,6 +176,7 @@ public class CharacterServiceImpl extends
 			CharacterTemplateIDProvider charTemplateIdProvider,
 			CharacterIDProvider charIdProvider) {
 		super(CharacterServiceConfiguration.class);
+		this.worldService = worldService;
 		this.broadcastService = broadcastService;
 		this.eventDispatcher = eventDispatcher;
 		this.spawnService = spawnService;
@@ -295,7 +304,7 @@ public class CharacterServiceImpl extends
 		spawnService.spawn(character, null);
 
 		// dispatch enter world event
-		eventDispatcher.dispatch(new CharacterEnterWorldEvent(character));
+		eventDispatcher.post(new CharacterEnterWorldEvent(character));
 
 		// update character
 		characterDao.saveObjectsAsync(character);
@@ -309,7 +318,7 @@ public class CharacterServiceImpl extends
 		log.debug("Character {} is leaving world", character);
 
 		spawnService.unspawn(character);
-		eventDispatcher.dispatch(new CharacterLeaveWorldEvent(character));
+		eventDispatcher.post(new CharacterLeaveWorldEvent(character));
 		onlineCharacters.remove(character.getID());
 
 		characterDao.saveObjectsAsync(character);
@@ -341,19 +350,19 @@ public class CharacterServiceImpl extends
 			// an target, trigger an deselect
 			final Actor oldTarget = character.getTarget();
 			character.setTargetID(null);
-			eventDispatcher.dispatch(new CharacterTargetDeselectedEvent(
+			eventDispatcher.post(new CharacterTargetDeselectedEvent(
 					character, oldTarget));
 		} else if (target != null && !target.getID().equals(character.getID())) {
 			// if new target is not null and the current character target is
 			// null or different, trigger the selection.
 			if (character.getTargetID() != null) {
 				// first deselect old target
-				eventDispatcher.dispatch(new CharacterTargetDeselectedEvent(
+				eventDispatcher.post(new CharacterTargetDeselectedEvent(
 						character, character.getTarget()));
 			}
 			// now select the new target
 			character.setTargetID(target.getID());
-			eventDispatcher.dispatch(new CharacterTargetSelectedEvent(
+			eventDispatcher.post(new CharacterTargetSelectedEvent(
 					character, target));
 		} else {
 			// this indicates an inconsistency: reset target and throws an
@@ -424,10 +433,12 @@ public class CharacterServiceImpl extends
 
 		character.setState(ActorState.MOVING);
 		character.setTargetLocation(coordinate.toPoint());
+		// the world tick only advances actors known to be moving
+		worldService.update(character);
 
 		// dispatch the start moving event. BroadcastService will catch it and
 		// notify the client.
-		eventDispatcher.dispatch(new CharacterStartMovingEvent(character,
+		eventDispatcher.post(new CharacterStartMovingEvent(character,
 				coordinate.toPoint()));
 		characterDao.saveObjectsAsync(character);
 	}
@@ -453,19 +464,22 @@ public class CharacterServiceImpl extends
 
 		final Point3D old = character.getPoint();
 		character.setPoint(point);
-		// BroadcastService will catch this event and update the knownlist
-		eventDispatcher.dispatch(new CharacterMoveEvent(character, old));
 
 		// target location is null if picking an item right after logging in and
 		// has not moved the char.
-		if (character.getTargetLocation() != null) {
-			if (point.getCoordinate().equals(
-					character.getTargetLocation().getCoordinate())) {
-				character.setState(null);
-				character.setTargetLocation(null);
-				// TODO dispatch stop event
-			}
+		final boolean stopped = character.getTargetLocation() != null
+				&& point.getCoordinate().equals(
+						character.getTargetLocation().getCoordinate());
+		if (stopped) {
+			character.setState(null);
+			character.setTargetLocation(null);
 		}
+		worldService.update(character);
+		// BroadcastService will catch this event and update the knownlist
+		eventDispatcher.post(new CharacterMoveEvent(character, old));
+		// observers that only receive start and stop packets need this
+		if (stopped)
+			eventDispatcher.post(new CharacterStopMoveEvent(character, point));
 
 		characterDao.saveObjectsAsync(character);
 	}
@@ -483,7 +497,7 @@ public class CharacterServiceImpl extends
 		// if running set mode to walk and broadcast packet
 		character.setMoveType(CharacterMoveType.WALK);
 
-		eventDispatcher.dispatch(new CharacterWalkingEvent(character));
+		eventDispatcher.post(new CharacterWalkingEvent(character));
 	}
 
 	@Override
@@ -499,6 +513,6 @@ public class CharacterServiceImpl extends
 		// if running walking mode to run and broadcast packet
 		character.setMoveType(CharacterMoveType.RUN);
 
-		eventDispatcher.dispatch(new CharacterRunningEvent(character));
+		eventDispatcher.post(new CharacterRunningEvent(character));
 	}
 }
@@ -79,7 +79,7 @@ public class ShortcutServiceImpl extends AbstractService implements
 		shortcutDao.save(shortcut);
 		character.getShortcuts().register(shortcut);
 
-		eventDispatcher.dispatch(new CharacterCreateShortcutEvent(character,
+		eventDispatcher.post(new CharacterCreateShortcutEvent(character,
 				shortcut));
 
 		return shortcut;
@@ -100,7 +100,7 @@ public class ShortcutServiceImpl extends AbstractService implements
 		shortcutDao.deleteObjectsAsync(shortcut);
 		character.getShortcuts().unregister(shortcut);
 
-		eventDispatcher.dispatch(new CharacterDeleteShortcutEvent(character,
+		eventDispatcher.post(new CharacterDeleteShortcutEvent(character,
 				shortcut));
 	}
 }
@@ -37,6 +37,7 @@ import com.l2jserver.service.ServiceStartException;
 import com.l2jserver.service.ServiceStopException;
 import com.l2jserver.service.database.DataAccessObject;
 import com.l2jserver.service.game.region.Region;
+import com.l2jserver.service.game.region.RegionService;
 import com.l2jserver.util.factory.CollectionFactory;
 
 /**
@@ -44,7 +45,7 @@ import com.l2jserver.util.factory.CollectionFactory;
  * 
  * @author <a href="http://www.rogiel.com">Rogiel</a>
  */
-@Depends(ChatLoggingService.class)
+@Depends({ ChatLoggingService.class, RegionService.class })
 public class SimpleChatService extends AbstractService implements ChatService {
 	/**
 	 * The logger
@@ -55,10 +56,10 @@ public class SimpleChatService extends AbstractService implements ChatService {
 	 * The {@link ChatLoggingService} implementation
 	 */
 	private final ChatLoggingService chatLoggingService;
-	// /**
-	// * The {@link RegionService}
-	// */
-	// private final RegionService regionService;
+	/**
+	 * The {@link RegionService}
+	 */
+	private final RegionService regionService;
 	/**
 	 * The {@link L2Character} DAO
 	 */
@@ -89,7 +90,6 @@ public class SimpleChatService extends AbstractService implements ChatService {
 	/**
 	 * The list of regional chat channels
 	 */
-	@SuppressWarnings("unused")
 	private Map<Region, RegionChatChannelImpl> regionChannels;
 
 	/**
@@ -97,14 +97,16 @@ public class SimpleChatService extends AbstractService implements ChatService {
 	 * 
 	 * @param chatLogService
 	 *            the chat log service
+	 * @param regionService
+	 *            the region service
 	 * @param charDao
 	 *            the character {@link DataAccessObject DAO}
 	 */
 	@Inject
 	public SimpleChatService(ChatLoggingService chatLogService,
-			CharacterDAO charDao) {
+			RegionService regionService, CharacterDAO charDao) {
 		this.chatLoggingService = chatLogService;
-		// this.regionService = regionService;
+		this.regionService = regionService;
 		this.charDao = charDao;
 	}
 
@@ -177,14 +179,15 @@ public class SimpleChatService extends AbstractService implements ChatService {
 	@Override
 	public PublicChatChannel getRegionChannel(L2Character character) {
 		Preconditions.checkNotNull(character, "character");
-		// final Region region = regionService.getRegion(character);
-		// RegionChatChannelImpl channel = regionChannels.get(region);
-		// if (channel == null) {
-		// channel = new RegionChatChannelImpl(region);
-		// regionChannels.put(region, channel);
-		// }
-		// return channel;
-		return null;
+		final Region region = regionService.getRegion(character);
+		if (region == null)
+			return null;
+		RegionChatChannelImpl channel = regionChannels.get(region);
+		if (channel == null) {
+			channel = new RegionChatChannelImpl(region);
+			regionChannels.put(region, channel);
+		}
+		return channel;
 	}
 
 	@Override
@@ -457,9 +460,8 @@ public class SimpleChatService extends AbstractService implements ChatService {
 	private class RegionChatChannelImpl extends ChatChannelImpl implements
 			PublicChatChannel {
 		/**
-		 * The clan ID
+		 * The region
 		 */
-		@SuppressWarnings("unused")
 		private final Region region;
 
 		/**
@@ -468,7 +470,6 @@ public class SimpleChatService extends AbstractService implements ChatService {
 		 * @param region
 		 *            the region represented in this channel
 		 */
-		@SuppressWarnings("unused")
 		public RegionChatChannelImpl(Region region) {
 			Preconditions.checkNotNull(region, "region");
 			this.region = region;
@@ -481,7 +482,7 @@ public class SimpleChatService extends AbstractService implements ChatService {
 
 		@Override
 		public void dispose() {
-			throw new UnsupportedOperationException();
+			regionChannels.remove(region);
 		}
 	}
 }
@@ -269,7 +269,7 @@ public class ItemServiceImpl extends
 				itemDao.saveObjectsAsync(originalItem);
 			}
 			spawnService.unspawn(originalItem);
-			eventDispatcher.dispatch(new ItemPickEvent(character, originalItem,
+			eventDispatcher.post(new ItemPickEvent(character, originalItem,
 					item));
 
 			return item;
@@ -293,7 +293,7 @@ public class ItemServiceImpl extends
 			item.setPaperdoll(null);
 
 			spawnService.spawn(item, point);
-			eventDispatcher.dispatch(new ItemDropEvent(actor, item));
+			eventDispatcher.post(new ItemDropEvent(actor, item));
 
 			if (actor instanceof L2Character) {
 				if (sourceItem.equals(item)) {
@@ -22,7 +22,6 @@ import com.l2jserver.model.world.L2Character;
 import com.l2jserver.model.world.NPC;
 import com.l2jserver.model.world.npc.NPCController.NPCControllerException;
 import com.l2jserver.service.Service;
-import com.l2jserver.service.core.threading.AsyncFuture;
 import com.l2jserver.service.game.character.CannotSetTargetServiceException;
 import com.l2jserver.service.game.character.CharacterAction;
 import com.l2jserver.service.network.model.SystemMessage;
@@ -116,15 +115,15 @@ public interface NPCService extends Service {
 	void die(NPC npc, Actor killer);
 
 	/**
-	 * Moves an given <tt>npc</tt> to an <tt>point</tt>
+	 * Moves an given <tt>npc</tt> to an <tt>point</tt>. The NPC position is
+	 * advanced every world tick until it reaches the destination.
 	 * 
 	 * @param npc
 	 *            the NPC
 	 * @param point
 	 *            the destination point
-	 * @return the future informing once the NPC has been moved to that location
 	 */
-	AsyncFuture<Boolean> move(NPC npc, Point3D point);
+	void move(NPC npc, Point3D point);
 
 	/**
 	 * Attacks an given NPC, if possible.
@@ -41,9 +41,6 @@ import com.l2jserver.model.world.npc.event.NPCTalkEvent;
 import com.l2jserver.service.AbstractService;
 import com.l2jserver.service.AbstractService.Depends;
 import com.l2jserver.service.ServiceStartException;
-import com.l2jserver.service.core.threading.AbstractTask;
-import com.l2jserver.service.core.threading.AsyncFuture;
-import com.l2jserver.service.core.threading.ThreadService;
 import com.l2jserver.service.database.DatabaseService;
 import com.l2jserver.service.game.AttackService;
 import com.l2jserver.service.game.character.CannotSetTargetServiceException;
@@ -64,7 +61,7 @@ import com.l2jserver.util.html.markup.HtmlTemplate;
  * 
  * @author <a href="http://www.rogiel.com">Rogiel</a>
  */
-@Depends({ SpawnService.class, CharacterService.class, ThreadService.class,
+@Depends({ SpawnService.class, CharacterService.class, WorldService.class,
 		AttackService.class, DatabaseService.class })
 public class NPCServiceImpl extends AbstractService implements NPCService {
 	/**
@@ -82,9 +79,9 @@ public class NPCServiceImpl extends AbstractService implements NPCService {
 	@SuppressWarnings("unused")
 	private final CharacterService characterService;
 	/**
-	 * The {@link ThreadService}
+	 * The {@link WorldService}
 	 */
-	private final ThreadService threadService;
+	private final WorldService worldService;
 	/**
 	 * The {@link AttackService}
 	 */
@@ -120,8 +117,8 @@ public class NPCServiceImpl extends AbstractService implements NPCService {
 	 *            the spawn service
 	 * @param characterService
 	 *            the character service
-	 * @param threadService
-	 *            the thread service
+	 * @param worldService
+	 *            the world service
 	 * @param attackService
 	 *            the attack service
 	 * @param eventDispatcher
@@ -133,13 +130,13 @@ public class NPCServiceImpl extends AbstractService implements NPCService {
 	 */
 	@Inject
 	public NPCServiceImpl(SpawnService spawnService,
-			CharacterService characterService, ThreadService threadService,
+			CharacterService characterService, WorldService worldService,
 			AttackService attackService,
 			WorldEventDispatcherService eventDispatcher, NPCDAO npcDao,
 			Injector injector) {
 		this.spawnService = spawnService;
 		this.characterService = characterService;
-		this.threadService = threadService;
+		this.worldService = worldService;
 		this.attackService = attackService;
 		this.eventDispatcher = eventDispatcher;
 		this.npcDao = npcDao;
@@ -215,7 +212,7 @@ public class NPCServiceImpl extends AbstractService implements NPCService {
 		Preconditions.checkNotNull(npc, "npc");
 		Preconditions.checkNotNull(character, "character");
 		Preconditions.checkNotNull(html, "html");
-		eventDispatcher.dispatch(new NPCTalkEvent(npc, character, html));
+		eventDispatcher.post(new NPCTalkEvent(npc, character, html));
 	}
 
 	@Override
@@ -229,7 +226,7 @@ public class NPCServiceImpl extends AbstractService implements NPCService {
 		npc.setState(ActorState.DEAD);
 
 		// dispatch die event
-		eventDispatcher.dispatch(new NPCDieEvent(npc, killer));
+		eventDispatcher.post(new NPCDieEvent(npc, killer));
 
 		// schedule corpse removal -- npc will be kept in the world until then
 		spawnService.unspawn(npc, 5, TimeUnit.SECONDS);
@@ -243,29 +240,19 @@ public class NPCServiceImpl extends AbstractService implements NPCService {
 	}
 
 	@Override
-	public AsyncFuture<Boolean> move(final NPC npc, final Point3D point) {
+	public void move(NPC npc, Point3D point) {
+		Preconditions.checkNotNull(npc, "npc");
+		Preconditions.checkNotNull(point, "point");
 		if (!npc.isIdle())
 			// TODO throw an exception
-			return null;
-		npc.setState(ActorState.MOVING);
+			return;
 
 		log.debug("{} is moving to {}", npc, point);
 
-		// calculate walking time
-		final Point3D start = npc.getPoint();
-		final double distance = start.getDistance(point);
-		final double seconds = distance
-				/ npc.getTemplate().getInfo().getStats().getMove().getRun();
-		// TODO this is an dirty implementation!
-		return threadService.async((int) (seconds * 1000),
-				TimeUnit.MILLISECONDS, new AbstractTask<Boolean>() {
-					@Override
-					public Boolean call() throws Exception {
-						npc.setState(null);
-						npc.setPoint(point);
-						return false;
-					}
-				});
+		// the position is advanced by the WorldTickService on every step
+		npc.setTargetLocation(point);
+		npc.setState(ActorState.MOVING);
+		worldService.update(npc);
 	}
 
 	@Override
@@ -16,10 +16,59 @@
  */
 package com.l2jserver.service.game.region;
 
+import java.util.Collection;
+
+import com.l2jserver.model.world.Actor;
+import com.l2jserver.model.world.L2Character;
+import com.l2jserver.model.world.PositionableObject;
+
 /**
- * @author <a href="http://www.rogiel.com">Rogiel</a>
+ * An region is an fixed square shard of the world map. Each region knows all
+ * {@link PositionableObject objects} inside it and its neighbor regions.
+ * <p>
+ * An region is <b>active</b> when an {@link L2Character player} is inside it
+ * or inside any of its neighbors. Services that run periodic tasks (AI,
+ * spawning, broadcasting...) can skip inactive regions entirely, since no
+ * player would ever see the result.
  * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
  */
-public interface Region {
+public interface Region extends Iterable<PositionableObject> {
+	/**
+	 * @return the region column in the region grid
+	 */
+	int getX();
+
+	/**
+	 * @return the region row in the region grid
+	 */
+	int getY();
+
+	/**
+	 * @return an read-only view of all objects inside this region
+	 */
+	Collection<PositionableObject> getObjects();
+
+	/**
+	 * @return an read-only view of the moving {@link Actor actors} inside this
+	 *         region
+	 */
+	Collection<Actor> getMovingActors();
+
+	/**
+	 * @return the amount of players inside this region
+	 */
+	int getPlayerCount();
+
+	/**
+	 * @return the regions around this one. Regions on the world border have
+	 *         less than 8 neighbors.
+	 */
+	Collection<Region> getNeighbors();
 
+	/**
+	 * @return true if there are players in this region or in any of its
+	 *         neighbors
+	 */
+	boolean isActive();
 }
@@ -16,21 +16,76 @@
  */
 package com.l2jserver.service.game.region;
 
-import com.l2jserver.model.world.Actor;
+import java.util.Collection;
+
+import com.l2jserver.model.world.PositionableObject;
 import com.l2jserver.service.Service;
+import com.l2jserver.service.game.world.WorldService;
+import com.l2jserver.util.geometry.Point3D;
 
 /**
- * This service manages Lineage II Regions
+ * This service manages Lineage II Regions. The world map is split into fixed
+ * {@link Region regions} and every object in the world is kept inside the
+ * region that contains its point.
+ * <p>
+ * Objects are registered by {@link WorldService}, which notifies this service
+ * every time an object is added, removed or moved.
  * 
  * @author <a href="http://www.rogiel.com">Rogiel</a>
  */
 public interface RegionService extends Service {
 	/**
-	 * Get the region in which this actor is.
+	 * Get the region in which this object is.
+	 * 
+	 * @param object
+	 *            the object
+	 * @return the current region. <code>null</code> if object has no point
+	 */
+	Region getRegion(PositionableObject object);
+
+	/**
+	 * Get the region which contains the given point
+	 * 
+	 * @param point
+	 *            the point
+	 * @return the region
+	 */
+	Region getRegion(Point3D point);
+
+	/**
+	 * @return all regions currently active
+	 * @see Region#isActive()
+	 */
+	Collection<Region> getActiveRegions();
+
+	/**
+	 * @return all regions that have at least one object inside them
+	 */
+	Collection<Region> getOccupiedRegions();
+
+	/**
+	 * Registers an object in the region of its current point
+	 * 
+	 * @param object
+	 *            the object
+	 */
+	void add(PositionableObject object);
+
+	/**
+	 * Removes an object from its region
+	 * 
+	 * @param object
+	 *            the object
+	 */
+	void remove(PositionableObject object);
+
+	/**
+	 * Moves the object to the region of its current point, if it has changed.
+	 * Actors are also added to (or removed from) the moving actors of their
+	 * region, according to their current state.
 	 * 
-	 * @param actor
-	 *            the actor
-	 * @return the current region
+	 * @param object
+	 *            the object
 	 */
-	Region getRegion(Actor actor);
+	void update(PositionableObject object);
 }
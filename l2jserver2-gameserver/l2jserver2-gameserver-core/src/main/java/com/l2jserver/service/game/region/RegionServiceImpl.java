@@ -0,0 +1,406 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.service.game.region;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.l2jserver.model.world.Actor;
+import com.l2jserver.model.world.L2Character;
+import com.l2jserver.model.world.PositionableObject;
+import com.l2jserver.service.AbstractService;
+import com.l2jserver.service.AbstractService.Depends;
+import com.l2jserver.service.ServiceStartException;
+import com.l2jserver.service.ServiceStopException;
+import com.l2jserver.service.core.logging.LoggingService;
+import com.l2jserver.service.game.world.index.SpatialIndex;
+import com.l2jserver.util.factory.CollectionFactory;
+import com.l2jserver.util.geometry.Point3D;
+
+/**
+ * Default {@link RegionService} implementation. The world is split into
+ * square regions of {@link #REGION_SIZE} units each.
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+@Depends(LoggingService.class)
+public class RegionServiceImpl extends AbstractService implements
+		RegionService {
+	/**
+	 * The logger
+	 */
+	private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * The amount of bits to shift an coordinate to get its region
+	 */
+	public static final int REGION_SHIFT = 12;
+	/**
+	 * The size of each region, in world units
+	 */
+	public static final int REGION_SIZE = 1 << REGION_SHIFT;
+
+	/**
+	 * The amount of regions in the X axis
+	 */
+	private static final int REGIONS_X = (SpatialIndex.WORLD_MAX_X - SpatialIndex.WORLD_MIN_X) >> REGION_SHIFT;
+	/**
+	 * The amount of regions in the Y axis
+	 */
+	private static final int REGIONS_Y = (SpatialIndex.WORLD_MAX_Y - SpatialIndex.WORLD_MIN_Y) >> REGION_SHIFT;
+
+	/**
+	 * All the world regions
+	 */
+	private RegionImpl[] regions;
+	/**
+	 * Maps each registered object to the region it is currently in
+	 */
+	private final Map<PositionableObject, RegionImpl> locations = CollectionFactory
+			.newMap();
+	/**
+	 * The regions currently active
+	 */
+	private final Set<Region> activeRegions = CollectionFactory
+			.newConcurrentSet();
+	/**
+	 * The regions that have at least one object inside them
+	 */
+	private final Set<Region> occupiedRegions = CollectionFactory
+			.newConcurrentSet();
+
+	@Override
+	protected void doStart() throws ServiceStartException {
+		regions = new RegionImpl[REGIONS_X * REGIONS_Y];
+		for (int y = 0; y < REGIONS_Y; y++) {
+			for (int x = 0; x < REGIONS_X; x++) {
+				regions[y * REGIONS_X + x] = new RegionImpl(x, y);
+			}
+		}
+		// link neighbors
+		for (final RegionImpl region : regions) {
+			for (int dy = -1; dy <= 1; dy++) {
+				for (int dx = -1; dx <= 1; dx++) {
+					if (dx == 0 && dy == 0)
+						continue;
+					final int x = region.x + dx;
+					final int y = region.y + dy;
+					if (x < 0 || y < 0 || x >= REGIONS_X || y >= REGIONS_Y)
+						continue;
+					region.neighbors.add(regions[y * REGIONS_X + x]);
+				}
+			}
+		}
+		log.info("Created {} regions", regions.length);
+	}
+
+	@Override
+	public Region getRegion(PositionableObject object) {
+		Preconditions.checkNotNull(object, "object");
+		final Point3D point = object.getPoint();
+		if (point == null)
+			return null;
+		return getRegion(point);
+	}
+
+	@Override
+	public Region getRegion(Point3D point) {
+		Preconditions.checkNotNull(point, "point");
+		return regions[regionY(point.getY()) * REGIONS_X
+				+ regionX(point.getX())];
+	}
+
+	@Override
+	public Collection<Region> getActiveRegions() {
+		return Collections.unmodifiableSet(activeRegions);
+	}
+
+	@Override
+	public Collection<Region> getOccupiedRegions() {
+		return Collections.unmodifiableSet(occupiedRegions);
+	}
+
+	@Override
+	public synchronized void add(PositionableObject object) {
+		Preconditions.checkNotNull(object, "object");
+		if (object.getPoint() == null)
+			return;
+		final RegionImpl region = (RegionImpl) getRegion(object.getPoint());
+		if (locations.containsKey(object))
+			return;
+		locations.put(object, region);
+		enter(region, object);
+	}
+
+	@Override
+	public synchronized void remove(PositionableObject object) {
+		Preconditions.checkNotNull(object, "object");
+		final RegionImpl region = locations.remove(object);
+		if (region != null)
+			leave(region, object);
+	}
+
+	@Override
+	public synchronized void update(PositionableObject object) {
+		Preconditions.checkNotNull(object, "object");
+		if (object.getPoint() == null) {
+			remove(object);
+			return;
+		}
+		final RegionImpl region = (RegionImpl) getRegion(object.getPoint());
+		final RegionImpl old = locations.put(object, region);
+		if (old == region) {
+			updateMoving(region, object);
+			return;
+		}
+		if (old != null)
+			leave(old, object);
+		enter(region, object);
+	}
+
+	/**
+	 * Registers the object in the region and activates the region (and its
+	 * neighbors) if it is the first player inside it
+	 * 
+	 * @param region
+	 *            the region
+	 * @param object
+	 *            the object entering the region
+	 */
+	private void enter(RegionImpl region, PositionableObject object) {
+		if (region.objects.isEmpty())
+			occupiedRegions.add(region);
+		region.objects.add(object);
+		updateMoving(region, object);
+		if (object instanceof L2Character && region.players++ == 0)
+			updateActivation(region);
+	}
+
+	/**
+	 * Removes the object from the region and deactivates the region (and its
+	 * neighbors) if it was the last player inside it
+	 * 
+	 * @param region
+	 *            the region
+	 * @param object
+	 *            the object leaving the region
+	 */
+	private void leave(RegionImpl region, PositionableObject object) {
+		region.objects.remove(object);
+		region.moving.remove(object);
+		if (region.objects.isEmpty())
+			occupiedRegions.remove(region);
+		if (object instanceof L2Character && --region.players == 0)
+			updateActivation(region);
+	}
+
+	/**
+	 * Adds the object to the moving actors of the region if it is an moving
+	 * {@link Actor}, removes it otherwise.
+	 * 
+	 * @param region
+	 *            the region the object is in
+	 * @param object
+	 *            the object
+	 */
+	private void updateMoving(RegionImpl region, PositionableObject object) {
+		if (!(object instanceof Actor))
+			return;
+		if (((Actor) object).isMoving())
+			region.moving.add((Actor) object);
+		else
+			region.moving.remove(object);
+	}
+
+	/**
+	 * Recalculates the activation state of the region and all its neighbors.
+	 * 
+	 * @param region
+	 *            the region whose player count has changed from or to zero
+	 */
+	private void updateActivation(RegionImpl region) {
+		updateActivationState(region);
+		for (final Region neighbor : region.neighbors) {
+			updateActivationState((RegionImpl) neighbor);
+		}
+	}
+
+	/**
+	 * Recalculates the activation state of a single region.
+	 * 
+	 * @param region
+	 *            the region
+	 */
+	private void updateActivationState(RegionImpl region) {
+		boolean active = region.players > 0;
+		if (!active) {
+			for (final Region neighbor : region.neighbors) {
+				if (((RegionImpl) neighbor).players > 0) {
+					active = true;
+					break;
+				}
+			}
+		}
+		if (active == region.active)
+			return;
+		log.debug("{} is now {}", region, (active ? "active" : "inactive"));
+		region.active = active;
+		if (active)
+			activeRegions.add(region);
+		else
+			activeRegions.remove(region);
+	}
+
+	/**
+	 * @param x
+	 *            the x coordinate
+	 * @return the region column for the coordinate, clamped to the world
+	 */
+	private static int regionX(int x) {
+		final int rx = (x - SpatialIndex.WORLD_MIN_X) >> REGION_SHIFT;
+		if (rx < 0)
+			return 0;
+		if (rx >= REGIONS_X)
+			return REGIONS_X - 1;
+		return rx;
+	}
+
+	/**
+	 * @param y
+	 *            the y coordinate
+	 * @return the region row for the coordinate, clamped to the world
+	 */
+	private static int regionY(int y) {
+		final int ry = (y - SpatialIndex.WORLD_MIN_Y) >> REGION_SHIFT;
+		if (ry < 0)
+			return 0;
+		if (ry >= REGIONS_Y)
+			return REGIONS_Y - 1;
+		return ry;
+	}
+
+	@Override
+	protected void doStop() throws ServiceStopException {
+		regions = null;
+		locations.clear();
+		activeRegions.clear();
+		occupiedRegions.clear();
+	}
+
+	/**
+	 * {@link Region} implementation
+	 * 
+	 * @author <a href="http://www.rogiel.com">Rogiel</a>
+	 */
+	private static class RegionImpl implements Region {
+		/**
+		 * The region column
+		 */
+		private final int x;
+		/**
+		 * The region row
+		 */
+		private final int y;
+		/**
+		 * The objects inside this region
+		 */
+		private final Set<PositionableObject> objects = CollectionFactory
+				.newConcurrentSet();
+		/**
+		 * The moving actors inside this region
+		 */
+		private final Set<Actor> moving = CollectionFactory.newConcurrentSet();
+		/**
+		 * The neighbor regions
+		 */
+		private final List<Region> neighbors = CollectionFactory.newList();
+		/**
+		 * The amount of players in this region
+		 */
+		private volatile int players = 0;
+		/**
+		 * The activation state
+		 */
+		private volatile boolean active = false;
+
+		/**
+		 * Creates a new instance
+		 * 
+		 * @param x
+		 *            the region column
+		 * @param y
+		 *            the region row
+		 */
+		public RegionImpl(int x, int y) {
+			this.x = x;
+			this.y = y;
+		}
+
+		@Override
+		public int getX() {
+			return x;
+		}
+
+		@Override
+		public int getY() {
+			return y;
+		}
+
+		@Override
+		public Collection<PositionableObject> getObjects() {
+			return Collections.unmodifiableSet(objects);
+		}
+
+		@Override
+		public Collection<Actor> getMovingActors() {
+			return Collections.unmodifiableSet(moving);
+		}
+
+		@Override
+		public int getPlayerCount() {
+			return players;
+		}
+
+		@Override
+		public Collection<Region> getNeighbors() {
+			return Collections.unmodifiableList(neighbors);
+		}
+
+		@Override
+		public boolean isActive() {
+			return active;
+		}
+
+		@Override
+		public Iterator<PositionableObject> iterator() {
+			return getObjects().iterator();
+		}
+
+		@Override
+		public String toString() {
+			return "Region [" + x + "," + y + "]";
+		}
+	}
+}
@@ -131,7 +131,7 @@ public class SpawnServiceImpl extends AbstractService implements SpawnService {
 		// TODO throw an exception if event is null
 		if (event != null)
 			// dispatch spawn event
-			eventDispatcher.dispatch(event);
+			eventDispatcher.post(event);
 		// remember: broadcasting is done through events!
 	}
 
@@ -182,7 +182,7 @@ public class SpawnServiceImpl extends AbstractService implements SpawnService {
 		// TODO throw an exception if event is null
 		if (event != null)
 			// dispatch unspawn event
-			eventDispatcher.dispatch(event);
+			eventDispatcher.post(event);
 	}
 
 	@Override
@@ -220,9 +220,10 @@ public class SpawnServiceImpl extends AbstractService implements SpawnService {
 			((L2Character) actor).setTargetLocation(coordinate.toPoint());
 		} else {
 			actor.setPosition(coordinate);
+			worldService.update(actor);
 		}
 		// dispatch teleport event
-		eventDispatcher.dispatch(new ActorTeleportingEvent(actor, coordinate
+		eventDispatcher.post(new ActorTeleportingEvent(actor, coordinate
 				.toPoint()));
 		// remember: broadcasting is done through events!
 	}
@@ -239,8 +240,9 @@ public class SpawnServiceImpl extends AbstractService implements SpawnService {
 
 		character.setState(null);
 		character.setPoint(character.getTargetLocation());
+		worldService.update(character);
 
-		eventDispatcher.dispatch(new PlayerTeleportedEvent(character, character
+		eventDispatcher.post(new PlayerTeleportedEvent(character, character
 				.getTargetLocation()));
 
 		character.setTargetLocation(null);
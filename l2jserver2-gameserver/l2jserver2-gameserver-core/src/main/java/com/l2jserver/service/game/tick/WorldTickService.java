@@ -0,0 +1,42 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.service.game.tick;
+
+import com.l2jserver.model.world.Actor;
+import com.l2jserver.service.Service;
+
+/**
+ * This service runs the world simulation in fixed steps. On every step, all
+ * moving {@link Actor actors} are advanced towards their
+ * {@link Actor#getTargetLocation() target location}, so the server always has
+ * an authoritative position for them, no matter how often (or if) clients
+ * report their positions.
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public interface WorldTickService extends Service {
+	/**
+	 * Runs a single simulation step immediately, in the calling thread. This
+	 * is normally not needed since steps are scheduled automatically.
+	 */
+	void tick();
+
+	/**
+	 * @return the amount of steps executed since the service was started
+	 */
+	long getTickCount();
+}
@@ -0,0 +1,369 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.service.game.tick;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.l2jserver.model.world.Actor;
+import com.l2jserver.model.world.L2Character;
+import com.l2jserver.model.world.L2Character.CharacterMoveType;
+import com.l2jserver.model.world.PositionableObject;
+import com.l2jserver.model.world.character.event.CharacterKnownListUpdateEvent;
+import com.l2jserver.model.world.positionable.KnownListUpdate;
+import com.l2jserver.service.AbstractConfigurableService;
+import com.l2jserver.service.AbstractService.Depends;
+import com.l2jserver.service.ServiceStartException;
+import com.l2jserver.service.ServiceStopException;
+import com.l2jserver.service.core.threading.ScheduledAsyncFuture;
+import com.l2jserver.service.core.threading.ThreadService;
+import com.l2jserver.service.game.region.Region;
+import com.l2jserver.service.game.region.RegionService;
+import com.l2jserver.service.game.world.WorldService;
+import com.l2jserver.service.game.world.event.WorldEventDispatcherService;
+import com.l2jserver.util.factory.CollectionFactory;
+import com.l2jserver.util.geometry.Point3D;
+
+/**
+ * Default {@link WorldTickService} implementation. Each step is split in two
+ * phases:
+ * <ol>
+ * <li>all active regions are processed in parallel on a
+ * {@link ForkJoinPool}, advancing the moving actors inside them. Regions with
+ * no players nearby are not visited at all;</li>
+ * <li>the actors that have moved are updated in the {@link WorldService}
+ * indexes. Known lists of moved NPCs are updated as well, and characters are
+ * notified of the NPCs that came into or went out of their sight.</li>
+ * </ol>
+ * Since region membership only changes in the second phase, an actor that
+ * crosses a region border is never advanced twice in the same step.
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+@Depends({ ThreadService.class, RegionService.class, WorldService.class,
+		WorldEventDispatcherService.class })
+public class WorldTickServiceImpl extends
+		AbstractConfigurableService<WorldTickServiceConfiguration> implements
+		WorldTickService {
+	/**
+	 * The logger
+	 */
+	private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * The maximum amount of regions processed by a single fork-join task
+	 */
+	private static final int REGIONS_PER_TASK = 8;
+
+	/**
+	 * The {@link ThreadService}
+	 */
+	private final ThreadService threadService;
+	/**
+	 * The {@link RegionService}
+	 */
+	private final RegionService regionService;
+	/**
+	 * The {@link WorldService}
+	 */
+	private final WorldService worldService;
+	/**
+	 * The {@link WorldService} event dispatcher
+	 */
+	private final WorldEventDispatcherService eventDispatcher;
+
+	/**
+	 * The pool in which regions are processed
+	 */
+	private ForkJoinPool pool;
+	/**
+	 * The scheduled step task
+	 */
+	private ScheduledAsyncFuture task;
+	/**
+	 * Whether a step is currently running
+	 */
+	private final AtomicBoolean running = new AtomicBoolean();
+	/**
+	 * The amount of steps executed
+	 */
+	private final AtomicLong ticks = new AtomicLong();
+
+	/**
+	 * @param threadService
+	 *            the thread service
+	 * @param regionService
+	 *            the region service
+	 * @param worldService
+	 *            the world service
+	 * @param eventDispatcher
+	 *            the world service event dispatcher
+	 */
+	@Inject
+	public WorldTickServiceImpl(ThreadService threadService,
+			RegionService regionService, WorldService worldService,
+			WorldEventDispatcherService eventDispatcher) {
+		super(WorldTickServiceConfiguration.class);
+		this.threadService = threadService;
+		this.regionService = regionService;
+		this.worldService = worldService;
+		this.eventDispatcher = eventDispatcher;
+	}
+
+	@Override
+	protected void doStart() throws ServiceStartException {
+		int threads = config.getThreadCount();
+		if (threads <= 0)
+			threads = Runtime.getRuntime().availableProcessors();
+		pool = new ForkJoinPool(threads);
+		ticks.set(0);
+
+		final int interval = config.getStepInterval();
+		task = threadService.async(interval, TimeUnit.MILLISECONDS, interval,
+				new Runnable() {
+					@Override
+					public void run() {
+						// never run two steps at the same time
+						if (!running.compareAndSet(false, true)) {
+							log.warn(
+									"World step took longer than {}ms, skipping",
+									interval);
+							return;
+						}
+						pool.execute(new Runnable() {
+							@Override
+							public void run() {
+								try {
+									tick();
+								} catch (Throwable t) {
+									log.warn("Exception in world step", t);
+								} finally {
+									running.set(false);
+								}
+							}
+						});
+					}
+				});
+	}
+
+	@Override
+	public void tick() {
+		final double seconds = config.getStepInterval() / 1000.0;
+		final Region[] regions = regionService.getActiveRegions().toArray(
+				new Region[0]);
+		final Queue<Actor> moved = CollectionFactory.newConcurrentQueue();
+
+		final RegionTask root = new RegionTask(regions, 0, regions.length,
+				seconds, moved);
+		if (ForkJoinTask.getPool() == pool)
+			root.invoke();
+		else
+			pool.invoke(root);
+
+		Actor actor;
+		while ((actor = moved.poll()) != null) {
+			worldService.update(actor);
+			// characters update their own known list once the client
+			// validates its position
+			if (!(actor instanceof L2Character))
+				updateKnownList(actor);
+		}
+		ticks.incrementAndGet();
+	}
+
+	/**
+	 * Updates the known list of an actor that has moved and notifies the
+	 * characters that can now see it (or no longer see it)
+	 * 
+	 * @param actor
+	 *            the actor
+	 */
+	private void updateKnownList(Actor actor) {
+		final KnownListUpdate update = worldService.updateKnownList(actor);
+		if (update.isEmpty())
+			return;
+		final Collection<PositionableObject> self = Collections
+				.<PositionableObject> singletonList(actor);
+		final Collection<PositionableObject> none = Collections.emptyList();
+		for (final PositionableObject o : update.getEntered()) {
+			if (o instanceof L2Character)
+				eventDispatcher.post(new CharacterKnownListUpdateEvent(
+						(L2Character) o, new KnownListUpdate(self, none)));
+		}
+		for (final PositionableObject o : update.getLeft()) {
+			if (o instanceof L2Character)
+				eventDispatcher.post(new CharacterKnownListUpdateEvent(
+						(L2Character) o, new KnownListUpdate(none, self)));
+		}
+	}
+
+	@Override
+	public long getTickCount() {
+		return ticks.get();
+	}
+
+	/**
+	 * Advances an actor towards its target location
+	 * 
+	 * @param actor
+	 *            the actor
+	 * @param seconds
+	 *            the step duration, in seconds
+	 * @return true if the actor position or state has changed
+	 */
+	private static boolean advance(Actor actor, double seconds) {
+		if (!actor.isMoving())
+			return false;
+		final Point3D point = actor.getPoint();
+		final Point3D target = actor.getTargetLocation();
+		if (point == null || target == null)
+			return false;
+
+		final double distance = point.getDistance(target);
+		final double step = getSpeed(actor) * seconds;
+		if (distance <= step) {
+			if (distance > 0)
+				actor.setPoint(new Point3D(target.getCoordinate(), point
+						.getAngle()));
+			// characters are stopped once the client validates its position
+			if (!(actor instanceof L2Character)) {
+				actor.setState(null);
+				actor.setTargetLocation(null);
+				// updating the world removes it from the moving actors
+				return true;
+			}
+			return distance > 0;
+		}
+
+		final double ratio = step / distance;
+		actor.setPoint(Point3D.fromXYZA(
+				point.getX()
+						+ (int) Math.round((target.getX() - point.getX())
+								* ratio),
+				point.getY()
+						+ (int) Math.round((target.getY() - point.getY())
+								* ratio),
+				point.getZ()
+						+ (int) Math.round((target.getZ() - point.getZ())
+								* ratio), point.getAngle()));
+		return true;
+	}
+
+	/**
+	 * @param actor
+	 *            the actor
+	 * @return the actor current speed, in units per second
+	 */
+	private static int getSpeed(Actor actor) {
+		if (actor instanceof L2Character
+				&& ((L2Character) actor).getMoveType() == CharacterMoveType.WALK)
+			return actor.getStats().getWalkSpeed();
+		return actor.getStats().getRunSpeed();
+	}
+
+	@Override
+	protected void doStop() throws ServiceStopException {
+		if (task != null)
+			task.cancel(false);
+		task = null;
+		if (pool != null)
+			pool.shutdown();
+		pool = null;
+	}
+
+	/**
+	 * Advances all moving actors in a range of regions, splitting the range
+	 * in smaller tasks if needed
+	 * 
+	 * @author <a href="http://www.rogiel.com">Rogiel</a>
+	 */
+	private static class RegionTask extends RecursiveAction {
+		/**
+		 * The Java serialization version
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The regions
+		 */
+		private final Region[] regions;
+		/**
+		 * The first region (inclusive)
+		 */
+		private final int start;
+		/**
+		 * The last region (exclusive)
+		 */
+		private final int end;
+		/**
+		 * The step duration, in seconds
+		 */
+		private final double seconds;
+		/**
+		 * The actors that have moved
+		 */
+		private final Queue<Actor> moved;
+
+		/**
+		 * @param regions
+		 *            the regions
+		 * @param start
+		 *            the first region (inclusive)
+		 * @param end
+		 *            the last region (exclusive)
+		 * @param seconds
+		 *            the step duration, in seconds
+		 * @param moved
+		 *            the actors that have moved
+		 */
+		public RegionTask(Region[] regions, int start, int end,
+				double seconds, Queue<Actor> moved) {
+			this.regions = regions;
+			this.start = start;
+			this.end = end;
+			this.seconds = seconds;
+			this.moved = moved;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= REGIONS_PER_TASK) {
+				for (int i = start; i < end; i++) {
+					for (final Actor actor : regions[i].getMovingActors()) {
+						if (advance(actor, seconds))
+							moved.add(actor);
+					}
+				}
+				return;
+			}
+			final int middle = (start + end) >>> 1;
+			invokeAll(new RegionTask(regions, start, middle, seconds, moved),
+					new RegionTask(regions, middle, end, seconds, moved));
+		}
+	}
+}
@@ -23,9 +23,12 @@ import com.l2jserver.model.id.ObjectID;
 import com.l2jserver.model.world.NPC;
 import com.l2jserver.model.world.PositionableObject;
 import com.l2jserver.model.world.WorldObject;
+import com.l2jserver.model.world.positionable.KnownList;
+import com.l2jserver.model.world.positionable.KnownListUpdate;
 import com.l2jserver.service.Service;
 import com.l2jserver.service.game.world.event.WorldEventDispatcherService;
 import com.l2jserver.service.game.world.filter.WorldObjectFilter;
+import com.l2jserver.service.game.world.filter.impl.RangeFilter;
 import com.l2jserver.service.network.broadcast.BroadcastService;
 import com.l2jserver.service.network.model.Lineage2Client;
 
@@ -64,6 +67,63 @@ public interface WorldService extends Service, Iterable<WorldObject> {
 	 */
 	boolean remove(WorldObject object);
 
+	/**
+	 * Notifies the world that <tt>object</tt> has changed its position. This
+	 * must be called every time the point of an object already in the world
+	 * is changed, otherwise range queries might not see the object at its new
+	 * location. It must also be called once an actor starts or stops moving,
+	 * so that the world tick only visits moving actors.
+	 * 
+	 * @param object
+	 *            the object that has moved
+	 * @return true if object is present in the world
+	 */
+	boolean update(PositionableObject object);
+
+	/**
+	 * Brings the {@link KnownList} of <tt>object</tt> up to date with its
+	 * current position. Known lists are symmetric: every object that comes
+	 * into (or goes out of) sight of <tt>object</tt> will also have
+	 * <tt>object</tt> added to (or removed from) its own known list.
+	 * 
+	 * @param object
+	 *            the object
+	 * @return the objects that came into and went out of sight
+	 */
+	KnownListUpdate updateKnownList(PositionableObject object);
+
+	/**
+	 * @return the largest configured range after which objects go out of
+	 *         sight. Objects farther than this are never in a known list.
+	 */
+	int getMaximumLeaveRange();
+
+	/**
+	 * Makes <tt>object</tt> and <tt>other</tt> known to each other, regardless
+	 * of the distance between them. Used when an object appears next to
+	 * another (spawn, drop, teleport...), before any of them has moved.
+	 * 
+	 * @param object
+	 *            the object
+	 * @param other
+	 *            the other object
+	 * @return true if both objects are in the world and did not know each
+	 *         other
+	 */
+	boolean addKnownObject(PositionableObject object, PositionableObject other);
+
+	/**
+	 * Makes <tt>object</tt> and <tt>other</tt> no longer know each other
+	 * 
+	 * @param object
+	 *            the object
+	 * @param other
+	 *            the other object
+	 * @return true if the objects knew each other
+	 */
+	boolean removeKnownObject(PositionableObject object,
+			PositionableObject other);
+
 	/**
 	 * Check if this object is in the world.
 	 * 
@@ -112,6 +172,54 @@ public interface WorldService extends Service, Iterable<WorldObject> {
 		void knownObject(WorldObject object);
 	}
 
+	/**
+	 * Visits every object of type <tt>type</tt> within <tt>radius</tt> of the
+	 * given coordinate. The range test is the same used by
+	 * {@link RangeFilter}. Unlike {@link #list(WorldObjectFilter)} and
+	 * {@link #iterator(WorldObjectFilter)}, no filter, iterator or list is
+	 * created: the visitor is called directly while the spatial index is
+	 * being scanned, which makes this method suitable for hot paths.
+	 * <p>
+	 * The visitor must not block, as it runs inline on the caller thread.
+	 * 
+	 * @param <T>
+	 *            the object type
+	 * @param x
+	 *            the center x coordinate
+	 * @param y
+	 *            the center y coordinate
+	 * @param z
+	 *            the center z coordinate
+	 * @param radius
+	 *            the radius
+	 * @param type
+	 *            the object type
+	 * @param visitor
+	 *            the visitor
+	 * @return false if the visitor has stopped the scan, true otherwise
+	 */
+	<T extends PositionableObject> boolean forEachInRange(int x, int y, int z,
+			int radius, Class<T> type, RangeVisitor<? super T> visitor);
+
+	/**
+	 * The RangeVisitor is called for each object found by
+	 * {@link WorldService#forEachInRange(int, int, int, int, Class, RangeVisitor)}
+	 * 
+	 * @author <a href="http://www.rogiel.com">Rogiel</a>
+	 * @param <T>
+	 *            the object type
+	 */
+	public interface RangeVisitor<T extends PositionableObject> {
+		/**
+		 * Performs an action on the given <tt>object</tt>
+		 * 
+		 * @param object
+		 *            the object in range
+		 * @return true to continue the scan, false to stop it
+		 */
+		boolean visit(T object);
+	}
+
 	/**
 	 * Creates a list of all objects matching <tt>filter</tt>
 	 * 
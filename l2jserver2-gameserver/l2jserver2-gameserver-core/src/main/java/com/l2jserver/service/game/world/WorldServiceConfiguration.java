@@ -0,0 +1,123 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.service.game.world;
+
+import com.l2jserver.service.ServiceConfiguration;
+import com.l2jserver.service.configuration.XMLConfigurationService.ConfigurationXPath;
+
+/**
+ * Configuration interface for {@link WorldService}.
+ * <p>
+ * Visibility is configured with two ranges per object type. An object comes
+ * into sight once it gets closer than the <tt>enter</tt> range and only goes
+ * out of sight once it gets farther than the <tt>leave</tt> range. Keeping the
+ * <tt>leave</tt> range larger than the <tt>enter</tt> range avoids objects
+ * flickering in and out of sight near the border.
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public interface WorldServiceConfiguration extends ServiceConfiguration {
+	/**
+	 * @return the range in which players come into sight
+	 */
+	@ConfigurationPropertyGetter(defaultValue = "2000")
+	@ConfigurationXPath("visibility/players/@enter")
+	int getPlayerEnterRange();
+
+	/**
+	 * @param range
+	 *            the range in which players come into sight
+	 */
+	@ConfigurationPropertySetter
+	@ConfigurationXPath("visibility/players/@enter")
+	void setPlayerEnterRange(int range);
+
+	/**
+	 * @return the range after which players go out of sight
+	 */
+	@ConfigurationPropertyGetter(defaultValue = "2400")
+	@ConfigurationXPath("visibility/players/@leave")
+	int getPlayerLeaveRange();
+
+	/**
+	 * @param range
+	 *            the range after which players go out of sight
+	 */
+	@ConfigurationPropertySetter
+	@ConfigurationXPath("visibility/players/@leave")
+	void setPlayerLeaveRange(int range);
+
+	/**
+	 * @return the range in which NPCs come into sight
+	 */
+	@ConfigurationPropertyGetter(defaultValue = "2000")
+	@ConfigurationXPath("visibility/npcs/@enter")
+	int getNPCEnterRange();
+
+	/**
+	 * @param range
+	 *            the range in which NPCs come into sight
+	 */
+	@ConfigurationPropertySetter
+	@ConfigurationXPath("visibility/npcs/@enter")
+	void setNPCEnterRange(int range);
+
+	/**
+	 * @return the range after which NPCs go out of sight
+	 */
+	@ConfigurationPropertyGetter(defaultValue = "2400")
+	@ConfigurationXPath("visibility/npcs/@leave")
+	int getNPCLeaveRange();
+
+	/**
+	 * @param range
+	 *            the range after which NPCs go out of sight
+	 */
+	@ConfigurationPropertySetter
+	@ConfigurationXPath("visibility/npcs/@leave")
+	void setNPCLeaveRange(int range);
+
+	/**
+	 * @return the range in which items on the ground come into sight
+	 */
+	@ConfigurationPropertyGetter(defaultValue = "1500")
+	@ConfigurationXPath("visibility/items/@enter")
+	int getItemEnterRange();
+
+	/**
+	 * @param range
+	 *            the range in which items on the ground come into sight
+	 */
+	@ConfigurationPropertySetter
+	@ConfigurationXPath("visibility/items/@enter")
+	void setItemEnterRange(int range);
+
+	/**
+	 * @return the range after which items on the ground go out of sight
+	 */
+	@ConfigurationPropertyGetter(defaultValue = "1800")
+	@ConfigurationXPath("visibility/items/@leave")
+	int getItemLeaveRange();
+
+	/**
+	 * @param range
+	 *            the range after which items on the ground go out of sight
+	 */
+	@ConfigurationPropertySetter
+	@ConfigurationXPath("visibility/items/@leave")
+	void setItemLeaveRange(int range);
+}
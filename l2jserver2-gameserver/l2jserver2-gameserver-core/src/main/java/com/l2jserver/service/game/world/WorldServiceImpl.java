@@ -26,22 +26,32 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Preconditions;
 import com.google.inject.Inject;
 import com.l2jserver.model.id.ObjectID;
+import com.l2jserver.model.world.Item;
+import com.l2jserver.model.world.L2Character;
+import com.l2jserver.model.world.NPC;
+import com.l2jserver.model.world.Pet;
 import com.l2jserver.model.world.PositionableObject;
 import com.l2jserver.model.world.WorldObject;
-import com.l2jserver.service.AbstractService;
+import com.l2jserver.model.world.positionable.KnownList;
+import com.l2jserver.model.world.positionable.KnownListUpdate;
+import com.l2jserver.service.AbstractConfigurableService;
 import com.l2jserver.service.AbstractService.Depends;
 import com.l2jserver.service.ServiceStartException;
 import com.l2jserver.service.ServiceStopException;
 import com.l2jserver.service.core.logging.LoggingService;
 import com.l2jserver.service.database.DatabaseService;
+import com.l2jserver.service.game.region.RegionService;
 import com.l2jserver.service.game.scripting.ScriptingService;
 import com.l2jserver.service.game.template.TemplateService;
 import com.l2jserver.service.game.world.event.WorldEventDispatcherService;
-import com.l2jserver.service.game.world.filter.FilterIterator;
 import com.l2jserver.service.game.world.filter.WorldObjectFilter;
-import com.l2jserver.service.game.world.filter.impl.IDFilter;
 import com.l2jserver.service.game.world.filter.impl.InstanceFilter;
 import com.l2jserver.service.game.world.filter.impl.KnownListFilter;
+import com.l2jserver.service.game.world.filter.impl.RangeFilter;
+import com.l2jserver.service.game.world.index.QueryPlanner;
+import com.l2jserver.service.game.world.index.SpatialIndex;
+import com.l2jserver.service.game.world.index.TypeIndex;
+import com.l2jserver.util.collection.ConcurrentIntObjectMap;
 import com.l2jserver.util.factory.CollectionFactory;
 
 /**
@@ -51,8 +61,10 @@ import com.l2jserver.util.factory.CollectionFactory;
  */
 @Depends({ LoggingService.class, TemplateService.class, ScriptingService.class,
 		DatabaseService.class, WorldIDService.class,
-		WorldEventDispatcherService.class })
-public class WorldServiceImpl extends AbstractService implements WorldService {
+		WorldEventDispatcherService.class, RegionService.class })
+public class WorldServiceImpl extends
+		AbstractConfigurableService<WorldServiceConfiguration> implements
+		WorldService {
 	/**
 	 * The logger
 	 */
@@ -60,9 +72,40 @@ public class WorldServiceImpl extends AbstractService implements WorldService {
 			.getLogger(WorldServiceImpl.class);
 
 	/**
-	 * The set of all objects registered in the world
+	 * The types that have their own partition in the world. Queries for one of
+	 * those types (or an subtype) only need to look at objects of that type.
 	 */
-	private final Set<WorldObject> objects = CollectionFactory.newSet();
+	private static final Class<?>[] PARTITIONS = { L2Character.class,
+			NPC.class, Item.class, Pet.class };
+
+	/**
+	 * The set of all objects registered in the world. This set and all the
+	 * indexes can be read concurrently without locking and their iterators
+	 * are weakly consistent, so many threads can query the world while others
+	 * add or remove objects.
+	 */
+	private final Set<WorldObject> objects = CollectionFactory
+			.newConcurrentSet();
+	/**
+	 * The objects registered in the world, indexed by their raw object ID.
+	 * Used by {@link #find(ObjectID)} to avoid scanning the whole world.
+	 */
+	private final ConcurrentIntObjectMap<WorldObject> ids = new ConcurrentIntObjectMap<WorldObject>();
+	/**
+	 * The objects registered in the world, partitioned by type (see
+	 * {@link #PARTITIONS})
+	 */
+	private final TypeIndex types = new TypeIndex(PARTITIONS);
+	/**
+	 * The spatial index of all {@link PositionableObject} in the world. Used
+	 * to resolve range queries without scanning the whole world.
+	 */
+	private final SpatialIndex spatialIndex = new SpatialIndex();
+	/**
+	 * The query planner, resolves filters using the world indexes
+	 */
+	private final QueryPlanner planner = new QueryPlanner(objects, ids,
+			types, spatialIndex);
 	/**
 	 * The world event dispatcher
 	 */
@@ -71,23 +114,34 @@ public class WorldServiceImpl extends AbstractService implements WorldService {
 	 * The {@link WorldIDService}
 	 */
 	private final WorldIDService idService;
+	/**
+	 * The {@link RegionService}
+	 */
+	private final RegionService regionService;
 
 	/**
 	 * @param dispatcher
 	 *            the world service event dispatcher
 	 * @param idService
 	 *            the world id service
+	 * @param regionService
+	 *            the region service
 	 */
 	@Inject
 	public WorldServiceImpl(WorldEventDispatcherService dispatcher,
-			WorldIDService idService) {
+			WorldIDService idService, RegionService regionService) {
+		super(WorldServiceConfiguration.class);
 		this.dispatcher = dispatcher;
 		this.idService = idService;
+		this.regionService = regionService;
 	}
 
 	@Override
 	protected void doStart() throws ServiceStartException {
 		objects.clear();
+		ids.clear();
+		types.clear();
+		spatialIndex.clear();
 		idService.load();
 	}
 
@@ -96,7 +150,16 @@ public class WorldServiceImpl extends AbstractService implements WorldService {
 		Preconditions.checkNotNull(object, "object");
 		Preconditions.checkNotNull(object.getID(), "id");
 		log.debug("Adding object {} to world", object);
-		return objects.add(object);
+		if (!objects.add(object))
+			return false;
+		ids.put(object.getID().getID(), object);
+		types.add(object);
+		if (object instanceof PositionableObject) {
+			spatialIndex.add((PositionableObject) object);
+			regionService.add((PositionableObject) object);
+			dispatcher.updateSubscriptions((PositionableObject) object);
+		}
+		return true;
 	}
 
 	@Override
@@ -106,7 +169,222 @@ public class WorldServiceImpl extends AbstractService implements WorldService {
 		log.debug("Removing object {} from world", object);
 		// we also need to remove all listeners for this object
 		dispatcher.clear(object.getID());
-		return objects.remove(object);
+		if (!objects.remove(object))
+			return false;
+		ids.remove(object.getID().getID(), object);
+		types.remove(object);
+		if (object instanceof PositionableObject) {
+			spatialIndex.remove((PositionableObject) object);
+			regionService.remove((PositionableObject) object);
+			forget((PositionableObject) object);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean update(PositionableObject object) {
+		Preconditions.checkNotNull(object, "object");
+		Preconditions.checkNotNull(object.getID(), "id");
+		if (!objects.contains(object))
+			return false;
+		spatialIndex.update(object);
+		regionService.update(object);
+		dispatcher.updateSubscriptions(object);
+		return true;
+	}
+
+	@Override
+	public KnownListUpdate updateKnownList(PositionableObject object) {
+		Preconditions.checkNotNull(object, "object");
+		final KnownList knownList = object.getKnownList();
+		final List<PositionableObject> entered = CollectionFactory.newList();
+		final List<PositionableObject> left = CollectionFactory.newList();
+
+		final Set<PositionableObject> visible = CollectionFactory.newSet();
+		if (object.getPoint() != null && objects.contains(object)) {
+			for (final PositionableObject other : iterable(new KnownListFilter(
+					object, getMaximumLeaveRange()))) {
+				// known objects only go out of sight after the leave range,
+				// new objects only come into sight inside the enter range
+				final boolean known = knownList.contains(other);
+				if (!RangeFilter.inRange(object, other,
+						(known ? getLeaveRange(object, other) : getEnterRange(
+								object, other))))
+					continue;
+				visible.add(other);
+				if (!known && link(object, other))
+					entered.add(other);
+			}
+		}
+		if (visible.size() != knownList.size()) {
+			for (final PositionableObject other : knownList) {
+				if (!visible.contains(other) && unlink(object, other))
+					left.add(other);
+			}
+		}
+		return new KnownListUpdate(entered, left);
+	}
+
+	@Override
+	public boolean addKnownObject(PositionableObject object,
+			PositionableObject other) {
+		Preconditions.checkNotNull(object, "object");
+		Preconditions.checkNotNull(other, "other");
+		if (object == other || !objects.contains(object)
+				|| !objects.contains(other))
+			return false;
+		return link(object, other);
+	}
+
+	@Override
+	public boolean removeKnownObject(PositionableObject object,
+			PositionableObject other) {
+		Preconditions.checkNotNull(object, "object");
+		Preconditions.checkNotNull(other, "other");
+		return unlink(object, other);
+	}
+
+	/**
+	 * Adds each object to the known list of the other. Both known lists are
+	 * locked, in object ID order, so that concurrent updates of the same pair
+	 * always leave both lists symmetric.
+	 * 
+	 * @param object
+	 *            the object
+	 * @param other
+	 *            the other object
+	 * @return true if the objects did not know each other
+	 */
+	private boolean link(PositionableObject object, PositionableObject other) {
+		final PositionableObject first = first(object, other);
+		final PositionableObject second = (first == object ? other : object);
+		synchronized (first.getKnownList()) {
+			synchronized (second.getKnownList()) {
+				if (!object.getKnownList().add(other))
+					return false;
+				other.getKnownList().add(object);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Removes each object from the known list of the other, locking both known
+	 * lists as {@link #link(PositionableObject, PositionableObject)} does.
+	 * 
+	 * @param object
+	 *            the object
+	 * @param other
+	 *            the other object
+	 * @return true if the objects knew each other
+	 */
+	private boolean unlink(PositionableObject object, PositionableObject other) {
+		final PositionableObject first = first(object, other);
+		final PositionableObject second = (first == object ? other : object);
+		synchronized (first.getKnownList()) {
+			synchronized (second.getKnownList()) {
+				if (!object.getKnownList().remove(other))
+					return false;
+				other.getKnownList().remove(object);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * @param object
+	 *            the object
+	 * @param other
+	 *            the other object
+	 * @return the object with the lowest ID, whose known list is locked first
+	 */
+	private static PositionableObject first(PositionableObject object,
+			PositionableObject other) {
+		return object.getID().getID() <= other.getID().getID() ? object
+				: other;
+	}
+
+	/**
+	 * Visibility is symmetric, so the range between two objects is the
+	 * smallest of their ranges.
+	 * 
+	 * @param object
+	 *            the object
+	 * @param other
+	 *            the other object
+	 * @return the range in which both objects come into sight
+	 */
+	private int getEnterRange(PositionableObject object,
+			PositionableObject other) {
+		return Math.min(getEnterRange(object), getEnterRange(other));
+	}
+
+	/**
+	 * Visibility is symmetric, so the range between two objects is the
+	 * smallest of their ranges.
+	 * 
+	 * @param object
+	 *            the object
+	 * @param other
+	 *            the other object
+	 * @return the range after which both objects go out of sight
+	 */
+	private int getLeaveRange(PositionableObject object,
+			PositionableObject other) {
+		return Math.min(getLeaveRange(object), getLeaveRange(other));
+	}
+
+	/**
+	 * @param object
+	 *            the object
+	 * @return the configured range in which <tt>object</tt> comes into sight
+	 */
+	private int getEnterRange(PositionableObject object) {
+		if (object instanceof NPC)
+			return config.getNPCEnterRange();
+		else if (object instanceof Item)
+			return config.getItemEnterRange();
+		return config.getPlayerEnterRange();
+	}
+
+	/**
+	 * @param object
+	 *            the object
+	 * @return the configured range after which <tt>object</tt> goes out of
+	 *         sight
+	 */
+	private int getLeaveRange(PositionableObject object) {
+		if (object instanceof NPC)
+			return Math.max(config.getNPCLeaveRange(),
+					config.getNPCEnterRange());
+		else if (object instanceof Item)
+			return Math.max(config.getItemLeaveRange(),
+					config.getItemEnterRange());
+		return Math.max(config.getPlayerLeaveRange(),
+				config.getPlayerEnterRange());
+	}
+
+	@Override
+	public int getMaximumLeaveRange() {
+		return Math.max(
+				Math.max(config.getPlayerLeaveRange(),
+						config.getPlayerEnterRange()),
+				Math.max(Math.max(config.getNPCLeaveRange(),
+						config.getNPCEnterRange()), Math.max(
+						config.getItemLeaveRange(), config.getItemEnterRange())));
+	}
+
+	/**
+	 * Removes <tt>object</tt> from the known list of every object that knows
+	 * it and clears its own known list.
+	 * 
+	 * @param object
+	 *            the object leaving the world
+	 */
+	private void forget(PositionableObject object) {
+		for (final PositionableObject other : object.getKnownList()) {
+			unlink(object, other);
+		}
 	}
 
 	@Override
@@ -120,24 +398,27 @@ public class WorldServiceImpl extends AbstractService implements WorldService {
 	@SuppressWarnings("unchecked")
 	public <T extends WorldObject> T find(ObjectID<T> id) {
 		Preconditions.checkNotNull(id, "id");
-		final IDFilter filter = new IDFilter(id);
-		for (final WorldObject object : objects) {
-			if (filter.accept(object))
-				return (T) object;
-		}
 		// TODO throw exception if object is not found
-		return null;
+		return (T) ids.get(id.getID());
 	}
 
 	@Override
-	public void knownlist(PositionableObject object, KnownListCallback callback) {
+	public void knownlist(PositionableObject object,
+			KnownListCallback callback) {
 		Preconditions.checkNotNull(object, "object");
 		Preconditions.checkNotNull(callback, "callback");
-		for (PositionableObject known : iterable(new KnownListFilter(object))) {
+		for (final PositionableObject known : object.getKnownList()) {
 			callback.knownObject(known);
 		}
 	}
 
+	@Override
+	public <T extends PositionableObject> boolean forEachInRange(int x,
+			int y, int z, int radius, Class<T> type,
+			RangeVisitor<? super T> visitor) {
+		return spatialIndex.forEach(x, y, z, radius, type, visitor);
+	}
+
 	@Override
 	public <T extends WorldObject> List<T> list(WorldObjectFilter<T> filter) {
 		Preconditions.checkNotNull(filter, "filter");
@@ -165,7 +446,7 @@ public class WorldServiceImpl extends AbstractService implements WorldService {
 	public <T extends WorldObject> Iterator<T> iterator(
 			final WorldObjectFilter<T> filter) {
 		Preconditions.checkNotNull(filter, "filter");
-		return new FilterIterator<T>(filter, objects.iterator());
+		return planner.iterator(filter);
 	}
 
 	@Override
@@ -175,7 +456,7 @@ public class WorldServiceImpl extends AbstractService implements WorldService {
 		return new Iterable<T>() {
 			@Override
 			public Iterator<T> iterator() {
-				return new FilterIterator<T>(filter, objects.iterator());
+				return planner.iterator(filter);
 			}
 		};
 	}
@@ -183,6 +464,9 @@ public class WorldServiceImpl extends AbstractService implements WorldService {
 	@Override
 	protected void doStop() throws ServiceStopException {
 		objects.clear();
+		ids.clear();
+		types.clear();
+		spatialIndex.clear();
 		idService.unload();
 	}
 }
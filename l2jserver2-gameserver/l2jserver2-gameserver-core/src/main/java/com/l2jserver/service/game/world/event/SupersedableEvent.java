@@ -0,0 +1,31 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.service.game.world.event;
+
+/**
+ * Marks an event that is made obsolete by a newer event of the same class
+ * issued by the same object, such as a position update. When coalescing is
+ * enabled, {@link WorldEventDispatcherService} may collapse all events of this
+ * kind issued by an object within one dispatch window into the latest one.
+ * <p>
+ * Events that depend on every intermediate value must <b>not</b> implement
+ * this interface.
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public interface SupersedableEvent extends WorldEvent {
+}
@@ -56,4 +56,11 @@ public abstract class TypedWorldListener<T> implements WorldListener {
 	 * @see WorldListener#dispatch(WorldEvent)
 	 */
 	protected abstract boolean dispatch(T e);
+
+	/**
+	 * @return the type of accepted events
+	 */
+	public Class<T> getType() {
+		return type;
+	}
 }
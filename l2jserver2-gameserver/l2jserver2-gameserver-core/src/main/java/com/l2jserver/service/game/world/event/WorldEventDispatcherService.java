@@ -17,8 +17,11 @@
 package com.l2jserver.service.game.world.event;
 
 import com.l2jserver.model.id.ObjectID;
+import com.l2jserver.model.world.PositionableObject;
 import com.l2jserver.model.world.WorldObject;
+import com.l2jserver.model.world.character.event.CharacterLeaveWorldEvent;
 import com.l2jserver.service.Service;
+import com.l2jserver.service.game.world.WorldService;
 
 /**
  * This event dispatcher notify listeners that an certain event occured in their
@@ -42,32 +45,56 @@ public interface WorldEventDispatcherService extends Service {
 	<E extends WorldEvent> WorldEventFuture<E> dispatch(E event);
 
 	/**
-	 * Adds a new global <tt>listener</tt>
+	 * Notify listeners of the <tt>event</tt>, exactly as
+	 * {@link #dispatch(WorldEvent)}, but without creating a future. This
+	 * should be preferred whenever the caller does not need to know when the
+	 * event has been dispatched.
+	 * 
+	 * @param event
+	 *            the event
+	 */
+	void post(WorldEvent event);
+
+	/**
+	 * Adds a new global <tt>listener</tt>. The listener will only receive
+	 * events that are instances of one of the given <tt>events</tt> types. If
+	 * no type is given, {@link TypedWorldListener} will receive events of its
+	 * own type and any other listener will receive all events.
 	 * 
 	 * @param listener
 	 *            the listener
+	 * @param events
+	 *            the event types handled by the listener
 	 */
-	void addListener(WorldListener listener);
+	void addListener(WorldListener listener, Class<?>... events);
 
 	/**
-	 * Adds a new <tt>listener</tt> to <tt>object</tt>
+	 * Adds a new <tt>listener</tt> to <tt>object</tt>. Event types are handled
+	 * as in {@link #addListener(WorldListener, Class...)}.
 	 * 
 	 * @param object
 	 *            the object to listen to
 	 * @param listener
 	 *            the listener
+	 * @param events
+	 *            the event types handled by the listener
 	 */
-	void addListener(WorldObject object, WorldListener listener);
+	void addListener(WorldObject object, WorldListener listener,
+			Class<?>... events);
 
 	/**
-	 * Adds a new <tt>listener</tt> to object with id <tt>id</tt>
+	 * Adds a new <tt>listener</tt> to object with id <tt>id</tt>. Event types
+	 * are handled as in {@link #addListener(WorldListener, Class...)}.
 	 * 
 	 * @param id
 	 *            the object id to listen to
 	 * @param listener
 	 *            the listener
+	 * @param events
+	 *            the event types handled by the listener
 	 */
-	void addListener(ObjectID<?> id, WorldListener listener);
+	void addListener(ObjectID<?> id, WorldListener listener,
+			Class<?>... events);
 
 	/**
 	 * Removes an existing global <tt>listener</tt>
@@ -97,6 +124,78 @@ public interface WorldEventDispatcherService extends Service {
 	 */
 	void removeListener(ObjectID<?> id, WorldListener listener);
 
+	/**
+	 * @return the dispatching metrics
+	 */
+	WorldEventMetrics getMetrics();
+
+	/**
+	 * Counts the listeners that could receive an event of the given class.
+	 * Area listeners are counted only if they handle events of that class,
+	 * regardless of where the event source is.
+	 * 
+	 * @param type
+	 *            the event class
+	 * @return the amount of listeners
+	 */
+	int getListenerCount(Class<? extends WorldEvent> type);
+
+	/**
+	 * Subscribes <tt>listener</tt> to every event issued by an object inside
+	 * the area of <tt>range</tt> around <tt>subscriber</tt>. The area moves
+	 * along with the subscriber (see {@link #updateSubscriptions(PositionableObject)}).
+	 * Events issued by the subscriber itself are not delivered to its area
+	 * listeners. Event types are handled as in
+	 * {@link #addListener(WorldListener, Class...)}.
+	 * <p>
+	 * Area listeners are notified in order with the events of the subscriber
+	 * itself, never concurrently with its own listeners.
+	 * <p>
+	 * Unlike global listeners, the cost of an area subscription is only paid
+	 * by events issued near the subscriber. Subscriptions are automatically
+	 * removed once the subscriber leaves the world (see
+	 * {@link CharacterLeaveWorldEvent}).
+	 * 
+	 * @param subscriber
+	 *            the object the area is bound to
+	 * @param range
+	 *            the area range
+	 * @param listener
+	 *            the listener
+	 * @param events
+	 *            the event types handled by the listener
+	 */
+	void subscribe(PositionableObject subscriber, int range,
+			WorldListener listener, Class<?>... events);
+
+	/**
+	 * Removes an area subscription
+	 * 
+	 * @param subscriber
+	 *            the object the area is bound to
+	 * @param listener
+	 *            the listener
+	 */
+	void unsubscribe(PositionableObject subscriber, WorldListener listener);
+
+	/**
+	 * Removes all area subscriptions bound to <tt>subscriber</tt>
+	 * 
+	 * @param subscriber
+	 *            the object the areas are bound to
+	 */
+	void unsubscribe(PositionableObject subscriber);
+
+	/**
+	 * Moves the areas bound to <tt>object</tt> to its current position. This
+	 * is called by {@link WorldService} every time an object moves and does
+	 * nothing if the object has no subscriptions.
+	 * 
+	 * @param object
+	 *            the object that has moved
+	 */
+	void updateSubscriptions(PositionableObject object);
+
 	/**
 	 * Removes all listeners from a given object
 	 * 
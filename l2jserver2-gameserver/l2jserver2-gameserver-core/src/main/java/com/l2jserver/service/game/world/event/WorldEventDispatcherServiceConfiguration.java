@@ -40,4 +40,161 @@ public interface WorldEventDispatcherServiceConfiguration extends
 	@ConfigurationPropertySetter
 	@ConfigurationXPath("threading/@count")
 	void setDispatcherThreadCount(int dispatcherThreadCount);
+
+	/**
+	 * @return the window, in milliseconds, in which {@link SupersedableEvent
+	 *         supersedable events} are coalesced (0 to disable)
+	 */
+	@ConfigurationPropertyGetter(defaultValue = "100")
+	@ConfigurationXPath("coalescing/@window")
+	int getCoalescingWindow();
+
+	/**
+	 * @param window
+	 *            the window, in milliseconds, in which
+	 *            {@link SupersedableEvent supersedable events} are coalesced
+	 *            (0 to disable)
+	 */
+	@ConfigurationPropertySetter
+	@ConfigurationXPath("coalescing/@window")
+	void setCoalescingWindow(int window);
+
+	/**
+	 * @return the time budget, in milliseconds, for a single listener to
+	 *         handle an event. Slower listeners are reported. (0 to disable)
+	 */
+	@ConfigurationPropertyGetter(defaultValue = "50")
+	@ConfigurationXPath("metrics/@listener-budget")
+	int getListenerBudget();
+
+	/**
+	 * @param budget
+	 *            the time budget, in milliseconds, for a single listener to
+	 *            handle an event. Slower listeners are reported. (0 to
+	 *            disable)
+	 */
+	@ConfigurationPropertySetter
+	@ConfigurationXPath("metrics/@listener-budget")
+	void setListenerBudget(int budget);
+
+	/**
+	 * @return the interval, in seconds, in which dispatching metrics are
+	 *         logged (0 to disable)
+	 */
+	@ConfigurationPropertyGetter(defaultValue = "0")
+	@ConfigurationXPath("metrics/@interval")
+	int getMetricsInterval();
+
+	/**
+	 * @param interval
+	 *            the interval, in seconds, in which dispatching metrics are
+	 *            logged (0 to disable)
+	 */
+	@ConfigurationPropertySetter
+	@ConfigurationXPath("metrics/@interval")
+	void setMetricsInterval(int interval);
+
+	/**
+	 * @return the relative amount of {@link WorldEventPriority#HIGH} lanes
+	 *         drained for each round
+	 */
+	@ConfigurationPropertyGetter(defaultValue = "4")
+	@ConfigurationXPath("priority/@high")
+	int getHighPriorityWeight();
+
+	/**
+	 * @param weight
+	 *            the relative amount of {@link WorldEventPriority#HIGH} lanes
+	 *            drained for each round
+	 */
+	@ConfigurationPropertySetter
+	@ConfigurationXPath("priority/@high")
+	void setHighPriorityWeight(int weight);
+
+	/**
+	 * @return the relative amount of {@link WorldEventPriority#NORMAL} lanes
+	 *         drained for each round
+	 */
+	@ConfigurationPropertyGetter(defaultValue = "2")
+	@ConfigurationXPath("priority/@normal")
+	int getNormalPriorityWeight();
+
+	/**
+	 * @param weight
+	 *            the relative amount of {@link WorldEventPriority#NORMAL}
+	 *            lanes drained for each round
+	 */
+	@ConfigurationPropertySetter
+	@ConfigurationXPath("priority/@normal")
+	void setNormalPriorityWeight(int weight);
+
+	/**
+	 * @return the relative amount of {@link WorldEventPriority#LOW} lanes
+	 *         drained for each round
+	 */
+	@ConfigurationPropertyGetter(defaultValue = "1")
+	@ConfigurationXPath("priority/@low")
+	int getLowPriorityWeight();
+
+	/**
+	 * @param weight
+	 *            the relative amount of {@link WorldEventPriority#LOW} lanes
+	 *            drained for each round
+	 */
+	@ConfigurationPropertySetter
+	@ConfigurationXPath("priority/@low")
+	void setLowPriorityWeight(int weight);
+
+	/**
+	 * @return the maximum amount of queued {@link WorldEventPriority#LOW}
+	 *         events (0 for unbounded)
+	 */
+	@ConfigurationPropertyGetter(defaultValue = "10000")
+	@ConfigurationXPath("backpressure/@limit")
+	int getLowPriorityLimit();
+
+	/**
+	 * @param limit
+	 *            the maximum amount of queued {@link WorldEventPriority#LOW}
+	 *            events (0 for unbounded)
+	 */
+	@ConfigurationPropertySetter
+	@ConfigurationXPath("backpressure/@limit")
+	void setLowPriorityLimit(int limit);
+
+	/**
+	 * @return what to do with {@link WorldEventPriority#LOW} events once the
+	 *         limit is reached
+	 */
+	@ConfigurationPropertyGetter(defaultValue = "COALESCE")
+	@ConfigurationXPath("backpressure/@policy")
+	BackpressurePolicy getBackpressurePolicy();
+
+	/**
+	 * @param policy
+	 *            what to do with {@link WorldEventPriority#LOW} events once
+	 *            the limit is reached
+	 */
+	@ConfigurationPropertySetter
+	@ConfigurationXPath("backpressure/@policy")
+	void setBackpressurePolicy(BackpressurePolicy policy);
+
+	/**
+	 * What to do with low priority events once the queue is full
+	 * 
+	 * @author <a href="http://www.rogiel.com">Rogiel</a>
+	 */
+	public enum BackpressurePolicy {
+		/**
+		 * Discards the event
+		 */
+		DROP,
+		/**
+		 * Collapses {@link SupersedableEvent supersedable events} with other
+		 * events of the same class issued by the same object. Any other event
+		 * is handled as in {@link #DROP}, as is every event if coalescing is
+		 * disabled.
+		 */
+		COALESCE;
+	}
 }
@@ -16,26 +16,53 @@
  */
 package com.l2jserver.service.game.world.event;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Queue;
-import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.AbstractFuture;
 import com.google.inject.Inject;
 import com.l2jserver.model.id.ObjectID;
+import com.l2jserver.model.world.PositionableObject;
 import com.l2jserver.model.world.WorldObject;
+import com.l2jserver.model.world.character.event.CharacterLeaveWorldEvent;
 import com.l2jserver.service.AbstractConfigurableService;
 import com.l2jserver.service.AbstractService.Depends;
+import com.l2jserver.service.core.threading.ScheduledAsyncFuture;
+import com.l2jserver.service.core.threading.Task;
 import com.l2jserver.service.core.threading.ThreadPool;
 import com.l2jserver.service.core.threading.ThreadService;
+import com.l2jserver.service.game.world.WorldService.RangeVisitor;
+import com.l2jserver.service.game.world.event.WorldEventDispatcherServiceConfiguration.BackpressurePolicy;
+import com.l2jserver.service.game.world.event.WorldEventMetrics.EventMetrics;
+import com.l2jserver.service.game.world.event.WorldEventPriority.Priority;
+import com.l2jserver.service.game.world.filter.impl.RangeFilter;
+import com.l2jserver.service.game.world.index.SpatialIndex;
 import com.l2jserver.util.factory.CollectionFactory;
+import com.l2jserver.util.geometry.Point3D;
 
 /**
- * Default {@link WorldEventDispatcherService} implementation
+ * Default {@link WorldEventDispatcherService} implementation.
+ * <p>
+ * Events are dispatched in <b>lanes</b>. Every dispatchable object of an event
+ * is assigned to a lane by its ID, so events for the same object are always
+ * dispatched in the order they were queued, whatever their priority, while
+ * events for unrelated objects are dispatched in parallel by all dispatcher
+ * threads. A lane is only ever drained by one thread at a time.
+ * <p>
+ * {@link WorldEventPriority Priorities} only decide which ready lane is
+ * drained next: a lane is ready at the priority of its oldest event.
+ * <p>
+ * Area listeners are notified in the lane of their subscriber, so they never
+ * run concurrently with the listeners of the subscriber itself.
  * 
  * @author <a href="http://www.rogiel.com">Rogiel</a>
  */
@@ -43,6 +70,17 @@ import com.l2jserver.util.factory.CollectionFactory;
 public class WorldEventDispatcherServiceImpl extends
 		AbstractConfigurableService<WorldEventDispatcherServiceConfiguration>
 		implements WorldEventDispatcherService {
+	/**
+	 * The amount of lanes created for each dispatcher thread. More lanes
+	 * reduce the chance of two unrelated objects sharing a lane.
+	 */
+	private static final int LANES_PER_THREAD = 16;
+	/**
+	 * The maximum amount of events dispatched from a lane before giving other
+	 * lanes a chance to run
+	 */
+	private static final int LANE_BATCH_SIZE = 64;
+
 	/**
 	 * The thread service
 	 */
@@ -54,19 +92,90 @@ public class WorldEventDispatcherServiceImpl extends
 	private ThreadPool threadPool;
 
 	/**
-	 * The list of all global listeners
+	 * The registry of all global listeners
+	 */
+	private final WorldListenerRegistry globalListeners = new WorldListenerRegistry();
+	/**
+	 * The {@link Map} containing the listener registry for every object
+	 */
+	private Map<ObjectID<?>, WorldListenerRegistry> listeners = CollectionFactory
+			.newConcurrentMap();
+	/**
+	 * The area listeners bound to each subscriber, mapped to their range and
+	 * event types
+	 */
+	private Map<PositionableObject, Map<WorldListener, Subscription>> subscriptions = CollectionFactory
+			.newConcurrentMap();
+	/**
+	 * The spatial index of all subscribers, used to locate the areas an event
+	 * has been issued in
+	 */
+	private final SpatialIndex subscribers = new SpatialIndex();
+	/**
+	 * The largest range ever subscribed. Used as the search range in
+	 * {@link #subscribers}.
+	 */
+	private volatile int maximumRange = 0;
+
+	/**
+	 * The {@link SupersedableEvent supersedable events} waiting for the end of
+	 * the current dispatch window, by event class and issuing object
+	 */
+	private final Map<Class<?>, Map<WorldObject, PendingEvent>> pending = CollectionFactory
+			.newConcurrentMap();
+	/**
+	 * The task that flushes the pending events at the end of each dispatch
+	 * window. <tt>null</tt> if coalescing is disabled.
+	 */
+	private volatile ScheduledAsyncFuture flushTask;
+
+	/**
+	 * The dispatching metrics
+	 */
+	private final WorldEventMetrics metrics = new WorldEventMetrics();
+	/**
+	 * The task that periodically logs the metrics. <tt>null</tt> if
+	 * reporting is disabled.
+	 */
+	private ScheduledAsyncFuture reportTask;
+
+	/**
+	 * The dispatch lanes, shared by all {@link WorldEventPriority priorities}.
+	 * The amount of lanes is always a power of two.
+	 */
+	private DispatchLane[] lanes;
+	/**
+	 * The lanes that have pending events and are not being drained, for each
+	 * {@link WorldEventPriority}
+	 */
+	private final Queue<DispatchLane>[] ready = newReadyQueues();
+	/**
+	 * One permit for each lane in {@link #ready}. Dispatcher threads block on
+	 * this semaphore until a lane becomes ready.
+	 */
+	private final Semaphore available = new Semaphore(0);
+	/**
+	 * The order in which dispatcher threads look for ready lanes. Each
+	 * priority appears as many times as its configured weight.
+	 */
+	private WorldEventPriority[] schedule;
+	/**
+	 * The amount of queued tasks for each {@link WorldEventPriority}
+	 */
+	private final AtomicInteger[] depth = newDepthCounters();
+	/**
+	 * The cached priority of each event class
 	 */
-	private Set<WorldListener> globalListeners = CollectionFactory.newSet();
+	private final Map<Class<?>, WorldEventPriority> priorities = CollectionFactory
+			.newConcurrentMap();
 	/**
-	 * The {@link Map} containing all listeners for every object
+	 * Marker lane queued once for each dispatcher thread to make it exit
 	 */
-	private Map<ObjectID<?>, Set<WorldListener>> listeners = CollectionFactory
-			.newMap();
+	private final DispatchLane shutdown = new DispatchLane();
 	/**
-	 * The events pending dispatch
+	 * The amount of dispatcher threads
 	 */
-	private Queue<EventContainer> events = CollectionFactory
-			.newConcurrentQueue();
+	private int threads;
 
 	/**
 	 * @param threadService
@@ -83,45 +192,69 @@ public class WorldEventDispatcherServiceImpl extends
 	 */
 	@Override
 	public void doStart() {
-		int threads = config.getDispatcherThreadCount();
+		threads = config.getDispatcherThreadCount();
 		if (threads <= 0)
 			threads = Runtime.getRuntime().availableProcessors();
 
+		int count = 1;
+		while (count < threads * LANES_PER_THREAD)
+			count <<= 1;
+		lanes = new DispatchLane[count];
+		for (int i = 0; i < count; i++) {
+			lanes[i] = new DispatchLane();
+		}
+		schedule = createSchedule(config.getHighPriorityWeight(),
+				config.getNormalPriorityWeight(),
+				config.getLowPriorityWeight());
+
 		threadPool = threadService
 				.createThreadPool("event-dispatcher", threads);
 		for (int i = 0; i < threads; i++) {
-			threadPool.async(0, TimeUnit.MILLISECONDS, 10, new Runnable() {
+			threadPool.async(new Task<Void>() {
 				@Override
-				public void run() {
-					EventContainer event;
-					while ((event = events.poll()) != null) {
-						synchronized (event) {
-							try {
-								if (event.future.isCancelled())
-									continue;
-
-								logger.debug("Dispatching event {}",
-										event.event);
-
-								// set state
-								event.future.running = true;
-								event.future.complete = false;
-
-								// dispatch
-								doDispatch(event.event);
-								// the set will update state
-								event.future.set(event.event);
-							} catch (Throwable t) {
-								event.future.setException(t);
-								logger.warn(
-										"Exception in WorldEventDispatcher thread",
-										t);
-							}
+				public Void call() {
+					try {
+						// park until a lane is ready, wake immediately once
+						// an event is queued
+						int round = 0;
+						while (true) {
+							available.acquire();
+							final DispatchLane lane = nextLane(round++);
+							if (lane == shutdown)
+								break;
+							lane.drain();
 						}
+					} catch (InterruptedException e) {
+						logger.debug("Event dispatcher thread interrupted");
 					}
+					return null;
 				}
 			});
 		}
+
+		metrics.setListenerBudget(config.getListenerBudget(),
+				TimeUnit.MILLISECONDS);
+		final int interval = config.getMetricsInterval();
+		if (interval > 0) {
+			reportTask = threadService.async(interval, TimeUnit.SECONDS,
+					interval, new Runnable() {
+						@Override
+						public void run() {
+							report();
+						}
+					});
+		}
+
+		final int window = config.getCoalescingWindow();
+		if (window > 0) {
+			flushTask = threadService.async(window, TimeUnit.MILLISECONDS,
+					window, new Runnable() {
+						@Override
+						public void run() {
+							flush();
+						}
+					});
+		}
 	}
 
 	@Override
@@ -130,67 +263,487 @@ public class WorldEventDispatcherServiceImpl extends
 		logger.debug("Queing dispatch for event {}", event);
 
 		final WorldEventFutureImpl<E> future = new WorldEventFutureImpl<E>();
-		events.add(new EventContainer(event, future));
+		submit(event, future);
 		return future;
 	}
 
+	@Override
+	public void post(WorldEvent event) {
+		Preconditions.checkNotNull(event, "event");
+		logger.debug("Queing dispatch for event {}", event);
+		submit(event, null);
+	}
+
+	/**
+	 * Submits the <tt>event</tt> for dispatching, coalescing it if it is a
+	 * {@link SupersedableEvent}
+	 * 
+	 * @param event
+	 *            the event
+	 * @param future
+	 *            the event future. Can be <tt>null</tt>.
+	 */
+	private void submit(WorldEvent event,
+			WorldEventFutureImpl<? extends WorldEvent> future) {
+		final WorldObject source = event.getObject();
+		final int limit = config.getLowPriorityLimit();
+		if (limit > 0 && getPriority(event) == WorldEventPriority.LOW
+				&& depth[WorldEventPriority.LOW.ordinal()].get() >= limit) {
+			// backpressure: keep the queue bounded under overload. only
+			// supersedable events can be collapsed without reordering or
+			// losing the events of their source
+			if (config.getBackpressurePolicy() == BackpressurePolicy.COALESCE
+					&& event instanceof SupersedableEvent && source != null
+					&& flushTask != null) {
+				supersede(event, future);
+			} else {
+				metrics.dropped(event);
+				if (future != null)
+					future.cancel(false);
+			}
+			return;
+		}
+		if (source != null) {
+			if (event instanceof SupersedableEvent && flushTask != null) {
+				supersede(event, future);
+				return;
+			}
+			// events from the same object must be dispatched in order
+			flush(source);
+		}
+		queue(event, future, null);
+	}
+
 	/**
-	 * Do the dispatching
+	 * Queues the <tt>event</tt> in the lanes of its dispatchable objects
 	 * 
 	 * @param event
 	 *            the event
+	 * @param future
+	 *            the event future. Can be <tt>null</tt>.
+	 * @param superseded
+	 *            the events superseded by <tt>event</tt>, if any
 	 */
-	private synchronized void doDispatch(WorldEvent event) {
+	private void queue(WorldEvent event,
+			WorldEventFutureImpl<? extends WorldEvent> future,
+			PendingEvent superseded) {
 		final ObjectID<?>[] objects = event.getDispatchableObjects();
-		for (ObjectID<?> obj : objects) {
-			if (obj == null)
+		int count = 0;
+		for (final ObjectID<?> id : objects) {
+			if (id != null)
+				count++;
+		}
+		// subscribers are looked up in the lane of the issuing object, so
+		// each subscriber receives the events of the same object in order
+		final WorldObject source = event.getObject();
+		final boolean area = source instanceof PositionableObject
+				&& source.getID() != null && !subscriptions.isEmpty();
+		if (area)
+			count++;
+
+		final EventContainer container = new EventContainer(event, future,
+				count, superseded);
+		if (count == 0) {
+			container.complete();
+			return;
+		}
+		final WorldEventPriority priority = getPriority(event);
+		for (final ObjectID<?> id : objects) {
+			if (id != null)
+				getLane(id).add(
+						new DispatchTask(container, id, priority, false));
+		}
+		if (area)
+			getLane(source.getID()).add(
+					new DispatchTask(container, source.getID(), priority,
+							true));
+	}
+
+	/**
+	 * Holds a supersedable event until the end of the current dispatch
+	 * window, replacing any pending event of the same class issued by the
+	 * same object
+	 * 
+	 * @param event
+	 *            the event
+	 * @param future
+	 *            the event future. Can be <tt>null</tt>.
+	 */
+	private void supersede(WorldEvent event,
+			WorldEventFutureImpl<? extends WorldEvent> future) {
+		final Map<WorldObject, PendingEvent> events = getPending(event
+				.getClass());
+		final WorldObject source = event.getObject();
+		synchronized (events) {
+			events.put(source,
+					new PendingEvent(event, future, events.get(source)));
+		}
+	}
+
+	/**
+	 * Queues all pending supersedable events. Called once every dispatch
+	 * window.
+	 */
+	private void flush() {
+		for (final Map<WorldObject, PendingEvent> events : pending.values()) {
+			final List<PendingEvent> flushed;
+			synchronized (events) {
+				if (events.isEmpty())
+					continue;
+				flushed = CollectionFactory.newList();
+				flushed.addAll(events.values());
+				events.clear();
+			}
+			for (final PendingEvent event : flushed) {
+				queue(event.event, event.future, event.superseded);
+			}
+		}
+	}
+
+	/**
+	 * Queues the pending supersedable events issued by <tt>source</tt>
+	 * 
+	 * @param source
+	 *            the object
+	 */
+	private void flush(WorldObject source) {
+		for (final Map<WorldObject, PendingEvent> events : pending.values()) {
+			if (events.isEmpty())
 				continue;
-			for (final WorldListener listener : globalListeners) {
-				try {
-					if (!listener.dispatch(event))
-						// remove listener if return value is false
-						globalListeners.remove(listener);
-				} catch (Throwable t) {
-					logger.warn("Exception in listener", t);
-					// always remove any listener that throws an exception
-					globalListeners.remove(listener);
-				}
+			final PendingEvent event;
+			synchronized (events) {
+				event = events.remove(source);
 			}
-			final Set<WorldListener> listeners = getListeners(obj);
-			for (final WorldListener listener : listeners) {
-				try {
-					if (!listener.dispatch(event))
-						// remove listener if return value is false
-						listeners.remove(listener);
-				} catch (Throwable t) {
-					logger.warn("Exception in listener", t);
-					// always remove any listener that throws an exception
-					listeners.remove(listener);
-				}
+			if (event != null)
+				queue(event.event, event.future, event.superseded);
+		}
+	}
+
+	/**
+	 * Get the pending events of the given class. Creates a new {@link Map}
+	 * if does not exists.
+	 * 
+	 * @param type
+	 *            the event class
+	 * @return the pending events, by issuing object. Never null.
+	 */
+	private Map<WorldObject, PendingEvent> getPending(Class<?> type) {
+		Map<WorldObject, PendingEvent> events = pending.get(type);
+		if (events != null)
+			return events;
+		synchronized (pending) {
+			events = pending.get(type);
+			if (events == null) {
+				events = CollectionFactory.newMap();
+				pending.put(type, events);
+			}
+			return events;
+		}
+	}
+
+	/**
+	 * Do the dispatching of an event to the listeners of a single object
+	 * 
+	 * @param event
+	 *            the event
+	 * @param id
+	 *            the dispatchable object id
+	 */
+	private void doDispatch(WorldEvent event, ObjectID<?> id) {
+		globalListeners.dispatch(event, metrics);
+		final WorldListenerRegistry listeners = this.listeners.get(id);
+		if (listeners != null)
+			listeners.dispatch(event, metrics);
+	}
+
+	/**
+	 * Looks for the subscribers near the issuing object with an area listener
+	 * for the event, and queues the event in the lane of each one of them
+	 * 
+	 * @param container
+	 *            the event container
+	 * @param priority
+	 *            the event priority
+	 */
+	private void doDispatchArea(final EventContainer container,
+			final WorldEventPriority priority) {
+		final WorldEvent event = container.event;
+		final PositionableObject source = (PositionableObject) event
+				.getObject();
+		final Point3D point = source.getPoint();
+		if (point != null) {
+			subscribers.forEach(point.getX(), point.getY(), point.getZ(),
+					maximumRange, PositionableObject.class,
+					new RangeVisitor<PositionableObject>() {
+						@Override
+						public boolean visit(PositionableObject subscriber) {
+							if (subscriber == source
+									|| subscriber.getID() == null)
+								return true;
+							final Map<WorldListener, Subscription> listeners = subscriptions
+									.get(subscriber);
+							if (listeners == null)
+								return true;
+							List<WorldListener> matched = null;
+							for (final Entry<WorldListener, Subscription> entry : listeners
+									.entrySet()) {
+								final Subscription subscription = entry
+										.getValue();
+								if (!subscription.accept(event)
+										|| !RangeFilter.inRange(subscriber,
+												source, subscription.range))
+									continue;
+								if (matched == null)
+									matched = CollectionFactory.newList();
+								matched.add(entry.getKey());
+							}
+							if (matched != null) {
+								container.fork();
+								getLane(subscriber.getID()).add(
+										new DispatchTask(container,
+												subscriber, matched, priority));
+							}
+							return true;
+						}
+					});
+		}
+		// the object is no longer in the world, neither are its areas
+		if (event instanceof CharacterLeaveWorldEvent)
+			unsubscribe(source);
+	}
+
+	/**
+	 * Do the dispatching of an event to the area listeners of a subscriber.
+	 * Listeners unsubscribed since the event was queued are skipped.
+	 * 
+	 * @param event
+	 *            the event
+	 * @param subscriber
+	 *            the subscriber
+	 * @param listeners
+	 *            the area listeners of <tt>subscriber</tt> that handle the
+	 *            event
+	 */
+	private void doDispatchSubscriber(WorldEvent event,
+			PositionableObject subscriber, List<WorldListener> listeners) {
+		for (final WorldListener listener : listeners) {
+			final Map<WorldListener, Subscription> subscribed = subscriptions
+					.get(subscriber);
+			if (subscribed == null)
+				return;
+			if (!subscribed.containsKey(listener))
+				continue;
+			final long start = System.nanoTime();
+			try {
+				if (!listener.dispatch(event))
+					// remove listener if return value is false
+					unsubscribe(subscriber, listener);
+			} catch (Throwable t) {
+				metrics.failed(event, listener, t);
+				// always remove any listener that throws an exception
+				unsubscribe(subscriber, listener);
 			}
+			metrics.handled(event, listener, System.nanoTime() - start);
 		}
 	}
 
+	/**
+	 * @param id
+	 *            the object id
+	 * @return the lane in which events for <tt>id</tt> are dispatched
+	 */
+	private DispatchLane getLane(ObjectID<?> id) {
+		final int hash = id.getID() * 0x9E3779B9;
+		return lanes[(hash ^ (hash >>> 16)) & (lanes.length - 1)];
+	}
+
+	/**
+	 * Takes the next ready lane. The caller must have acquired a permit from
+	 * {@link #available}, which guarantees that there is a lane to be taken.
+	 * 
+	 * @param round
+	 *            the dispatcher thread round, used to pick the preferred
+	 *            priority from {@link #schedule}
+	 * @return the lane
+	 */
+	private DispatchLane nextLane(int round) {
+		final WorldEventPriority preferred = schedule[(round & Integer.MAX_VALUE)
+				% schedule.length];
+		DispatchLane lane = ready[preferred.ordinal()].poll();
+		while (lane == null) {
+			// preferred priority is empty, take the most important one
+			for (final Queue<DispatchLane> queue : ready) {
+				if ((lane = queue.poll()) != null)
+					break;
+			}
+		}
+		return lane;
+	}
+
+	/**
+	 * @param event
+	 *            the event
+	 * @return the event priority
+	 */
+	private WorldEventPriority getPriority(WorldEvent event) {
+		final Class<?> type = event.getClass();
+		WorldEventPriority priority = priorities.get(type);
+		if (priority == null) {
+			priority = findPriority(type);
+			if (priority == null)
+				priority = WorldEventPriority.NORMAL;
+			priorities.put(type, priority);
+		}
+		return priority;
+	}
+
+	/**
+	 * Looks for the {@link Priority} annotation in <tt>type</tt> and all its
+	 * supertypes
+	 * 
+	 * @param type
+	 *            the type
+	 * @return the declared priority or <tt>null</tt>
+	 */
+	private static WorldEventPriority findPriority(Class<?> type) {
+		if (type == null)
+			return null;
+		final Priority annotation = type.getAnnotation(Priority.class);
+		if (annotation != null)
+			return annotation.value();
+		WorldEventPriority priority = findPriority(type.getSuperclass());
+		if (priority != null)
+			return priority;
+		for (final Class<?> iface : type.getInterfaces()) {
+			if ((priority = findPriority(iface)) != null)
+				return priority;
+		}
+		return null;
+	}
+
+	/**
+	 * @param weights
+	 *            the weight of each priority, in {@link WorldEventPriority}
+	 *            order
+	 * @return the lane schedule
+	 */
+	private static WorldEventPriority[] createSchedule(int... weights) {
+		final List<WorldEventPriority> schedule = CollectionFactory.newList();
+		final WorldEventPriority[] values = WorldEventPriority.values();
+		for (int i = 0; i < values.length; i++) {
+			// every priority must be drained eventually
+			for (int j = 0; j < Math.max(1, weights[i]); j++) {
+				schedule.add(values[i]);
+			}
+		}
+		return schedule.toArray(new WorldEventPriority[schedule.size()]);
+	}
+
+	/**
+	 * @return one empty ready queue for each {@link WorldEventPriority}
+	 */
+	@SuppressWarnings("unchecked")
+	private static Queue<DispatchLane>[] newReadyQueues() {
+		final Queue<DispatchLane>[] queues = new Queue[WorldEventPriority
+				.values().length];
+		for (int i = 0; i < queues.length; i++) {
+			queues[i] = CollectionFactory.newConcurrentQueue();
+		}
+		return queues;
+	}
+
+	/**
+	 * @return one zeroed counter for each {@link WorldEventPriority}
+	 */
+	private static AtomicInteger[] newDepthCounters() {
+		final AtomicInteger[] counters = new AtomicInteger[WorldEventPriority
+				.values().length];
+		for (int i = 0; i < counters.length; i++) {
+			counters[i] = new AtomicInteger();
+		}
+		return counters;
+	}
+
+	@Override
+	public WorldEventMetrics getMetrics() {
+		return metrics;
+	}
+
 	@Override
-	public void addListener(WorldListener listener) {
+	public int getListenerCount(Class<? extends WorldEvent> type) {
+		Preconditions.checkNotNull(type, "type");
+		int count = globalListeners.count(type);
+		for (final WorldListenerRegistry registry : listeners.values()) {
+			count += registry.count(type);
+		}
+		for (final Map<WorldListener, Subscription> area : subscriptions
+				.values()) {
+			for (final Subscription subscription : area.values()) {
+				if (subscription.accept(type))
+					count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Logs the metrics of every event class dispatched so far
+	 */
+	@SuppressWarnings("unchecked")
+	private void report() {
+		logger.info("World event dispatcher queue depth is {}",
+				metrics.getQueueDepth());
+		for (final Entry<Class<?>, EventMetrics> entry : metrics.getMetrics()
+				.entrySet()) {
+			final EventMetrics m = entry.getValue();
+			logger.info(
+					"{}: {} dispatched, {} pending, latency avg/p99/max {}/{}/{}us, duration avg/max {}/{}us, {} listeners, {} slow, {} errors, {} dropped",
+					new Object[] {
+							entry.getKey().getSimpleName(),
+							m.getCount(),
+							m.getPending(),
+							toMicros(m.getLatency().getAverage()),
+							toMicros(m.getLatency().getPercentile(0.99)),
+							toMicros(m.getLatency().getMaximum()),
+							toMicros(m.getDuration().getAverage()),
+							toMicros(m.getDuration().getMaximum()),
+							getListenerCount((Class<? extends WorldEvent>) entry
+									.getKey()), m.getSlowListenerCount(),
+							m.getErrorCount(), m.getDroppedCount() });
+		}
+	}
+
+	/**
+	 * @param nanos
+	 *            the time in nanoseconds
+	 * @return the time in microseconds
+	 */
+	private static long toMicros(long nanos) {
+		return TimeUnit.NANOSECONDS.toMicros(nanos);
+	}
+
+	@Override
+	public void addListener(WorldListener listener, Class<?>... events) {
 		Preconditions.checkNotNull(listener, "listener");
 		logger.debug("Adding new listener global {}", listener);
-		globalListeners.add(listener);
+		globalListeners.add(listener, events);
 	}
 
 	@Override
-	public void addListener(WorldObject object, WorldListener listener) {
+	public void addListener(WorldObject object, WorldListener listener,
+			Class<?>... events) {
 		Preconditions.checkNotNull(object, "object");
 		Preconditions.checkNotNull(listener, "listener");
-		addListener(object.getID(), listener);
+		addListener(object.getID(), listener, events);
 	}
 
 	@Override
-	public void addListener(ObjectID<?> id, WorldListener listener) {
+	public void addListener(ObjectID<?> id, WorldListener listener,
+			Class<?>... events) {
 		Preconditions.checkNotNull(id, "id");
 		Preconditions.checkNotNull(listener, "listener");
 		logger.debug("Adding new listener {} to {}", listener, id);
-		getListeners(id).add(listener);
+		getListeners(id).add(listener, events);
 	}
 
 	@Override
@@ -214,6 +767,71 @@ public class WorldEventDispatcherServiceImpl extends
 		getListeners(id).remove(listener);
 	}
 
+	@Override
+	public void subscribe(PositionableObject subscriber, int range,
+			WorldListener listener, Class<?>... events) {
+		Preconditions.checkNotNull(subscriber, "subscriber");
+		Preconditions.checkArgument(range >= 0, "range < 0");
+		Preconditions.checkNotNull(listener, "listener");
+		Preconditions.checkNotNull(events, "events");
+		logger.debug("Subscribing {} to area of {}", listener, subscriber);
+		final Subscription subscription = new Subscription(range,
+				WorldListenerRegistry.getTypes(listener, events));
+		synchronized (subscriber) {
+			Map<WorldListener, Subscription> listeners = subscriptions
+					.get(subscriber);
+			if (listeners == null) {
+				listeners = CollectionFactory.newConcurrentMap();
+				subscriptions.put(subscriber, listeners);
+				subscribers.add(subscriber);
+			}
+			listeners.put(listener, subscription);
+		}
+		synchronized (this) {
+			if (range > maximumRange)
+				maximumRange = range;
+		}
+	}
+
+	@Override
+	public void unsubscribe(PositionableObject subscriber,
+			WorldListener listener) {
+		Preconditions.checkNotNull(subscriber, "subscriber");
+		Preconditions.checkNotNull(listener, "listener");
+		synchronized (subscriber) {
+			final Map<WorldListener, Subscription> listeners = subscriptions
+					.get(subscriber);
+			if (listeners == null)
+				return;
+			listeners.remove(listener);
+			if (listeners.isEmpty()) {
+				subscriptions.remove(subscriber);
+				subscribers.remove(subscriber);
+			}
+		}
+	}
+
+	@Override
+	public void unsubscribe(PositionableObject subscriber) {
+		Preconditions.checkNotNull(subscriber, "subscriber");
+		logger.debug("Removing all area subscriptions of {}", subscriber);
+		synchronized (subscriber) {
+			subscriptions.remove(subscriber);
+			subscribers.remove(subscriber);
+		}
+	}
+
+	@Override
+	public void updateSubscriptions(PositionableObject object) {
+		Preconditions.checkNotNull(object, "object");
+		if (!subscriptions.containsKey(object))
+			return;
+		synchronized (object) {
+			if (subscriptions.containsKey(object))
+				subscribers.update(object);
+		}
+	}
+
 	@Override
 	public void clear(ObjectID<?> id) {
 		Preconditions.checkNotNull(id, "id");
@@ -221,21 +839,26 @@ public class WorldEventDispatcherServiceImpl extends
 	}
 
 	/**
-	 * Get the {@link Set} of listeners for an given object. Creates a new one
-	 * if does not exists.
+	 * Get the {@link WorldListenerRegistry} for an given object. Creates a new
+	 * one if does not exists.
 	 * 
 	 * @param id
 	 *            the object id
-	 * @return the {@link Set}. Never null.
+	 * @return the {@link WorldListenerRegistry}. Never null.
 	 */
-	private Set<WorldListener> getListeners(ObjectID<?> id) {
+	private WorldListenerRegistry getListeners(ObjectID<?> id) {
 		Preconditions.checkNotNull(id, "id");
-		Set<WorldListener> set = listeners.get(id);
-		if (set == null) {
-			set = CollectionFactory.newSet();
-			listeners.put(id, set);
+		WorldListenerRegistry registry = listeners.get(id);
+		if (registry != null)
+			return registry;
+		synchronized (listeners) {
+			registry = listeners.get(id);
+			if (registry == null) {
+				registry = new WorldListenerRegistry();
+				listeners.put(id, registry);
+			}
+			return registry;
 		}
-		return set;
 	}
 
 	/**
@@ -243,8 +866,28 @@ public class WorldEventDispatcherServiceImpl extends
 	 */
 	@Override
 	public void doStop() {
+		if (reportTask != null)
+			reportTask.cancel(false);
+		reportTask = null;
+		if (flushTask != null)
+			flushTask.cancel(false);
+		flushTask = null;
+		pending.clear();
+		for (final Queue<DispatchLane> queue : ready) {
+			queue.clear();
+		}
+		for (final AtomicInteger counter : depth) {
+			counter.set(0);
+		}
+		available.drainPermits();
+		for (int i = 0; i < threads; i++) {
+			shutdown.schedule();
+		}
 		threadService.dispose(threadPool);
 		threadPool = null;
+		lanes = null;
+		subscriptions.clear();
+		subscribers.clear();
 	}
 
 	/**
@@ -259,11 +902,11 @@ public class WorldEventDispatcherServiceImpl extends
 		/**
 		 * The running state of the dispatching event
 		 */
-		private boolean running = false;
+		private volatile boolean running = false;
 		/**
 		 * Will be true if the event has been dispatched to all listeners
 		 */
-		private boolean complete = false;
+		private volatile boolean complete = false;
 
 		@Override
 		@SuppressWarnings("unchecked")
@@ -342,9 +985,22 @@ public class WorldEventDispatcherServiceImpl extends
 		 */
 		private final WorldEvent event;
 		/**
-		 * The future
+		 * The future. <tt>null</tt> if the event was posted.
 		 */
 		private final WorldEventFutureImpl<? extends WorldEvent> future;
+		/**
+		 * The amount of objects and subscribers the event has not been
+		 * dispatched to yet
+		 */
+		private final AtomicInteger remaining;
+		/**
+		 * The events superseded by this one
+		 */
+		private final PendingEvent superseded;
+		/**
+		 * The time the event has been queued, in nanoseconds
+		 */
+		private final long queued = System.nanoTime();
 
 		/**
 		 * Creates a new instance
@@ -353,11 +1009,324 @@ public class WorldEventDispatcherServiceImpl extends
 		 *            the event
 		 * @param future
 		 *            the future
+		 * @param objects
+		 *            the amount of objects the event is dispatched to
+		 * @param superseded
+		 *            the events superseded by this one, if any
 		 */
 		public EventContainer(WorldEvent event,
-				WorldEventFutureImpl<? extends WorldEvent> future) {
+				WorldEventFutureImpl<? extends WorldEvent> future,
+				int objects, PendingEvent superseded) {
+			this.event = event;
+			this.future = future;
+			this.remaining = new AtomicInteger(objects);
+			this.superseded = superseded;
+		}
+
+		/**
+		 * Notifies that the event has been dispatched to one of its objects
+		 * 
+		 * @return true if the event has been dispatched to all its objects
+		 */
+		public boolean dispatched() {
+			return remaining.decrementAndGet() == 0;
+		}
+
+		/**
+		 * Notifies that the event will also be dispatched to a subscriber.
+		 * Must be called before the dispatching task that found the
+		 * subscriber is done.
+		 */
+		public void fork() {
+			remaining.incrementAndGet();
+		}
+
+		/**
+		 * Completes the future of this event and of all events superseded by
+		 * it
+		 */
+		public void complete() {
+			// the set will update state
+			if (future != null)
+				future.set(event);
+			for (PendingEvent e = superseded; e != null; e = e.superseded) {
+				if (e.future != null)
+					e.future.set(e.event);
+			}
+		}
+	}
+
+	/**
+	 * The range and event types of an area listener
+	 * 
+	 * @author <a href="http://www.rogiel.com">Rogiel</a>
+	 */
+	private static class Subscription {
+		/**
+		 * The area range
+		 */
+		private final int range;
+		/**
+		 * The event types handled by the listener
+		 */
+		private final Class<?>[] types;
+
+		/**
+		 * Creates a new instance
+		 * 
+		 * @param range
+		 *            the area range
+		 * @param types
+		 *            the event types handled by the listener
+		 */
+		public Subscription(int range, Class<?>[] types) {
+			this.range = range;
+			this.types = types;
+		}
+
+		/**
+		 * @param event
+		 *            the event
+		 * @return true if the listener handles <tt>event</tt>
+		 */
+		public boolean accept(WorldEvent event) {
+			for (final Class<?> type : types) {
+				if (type.isInstance(event))
+					return true;
+			}
+			return false;
+		}
+
+		/**
+		 * @param type
+		 *            the event class
+		 * @return true if the listener handles events of <tt>type</tt>
+		 */
+		public boolean accept(Class<?> type) {
+			for (final Class<?> accepted : types) {
+				if (accepted.isAssignableFrom(type))
+					return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * A {@link SupersedableEvent} waiting for the end of the dispatch window
+	 * 
+	 * @author <a href="http://www.rogiel.com">Rogiel</a>
+	 */
+	private static class PendingEvent {
+		/**
+		 * The event
+		 */
+		private final WorldEvent event;
+		/**
+		 * The future. <tt>null</tt> if the event was posted.
+		 */
+		private final WorldEventFutureImpl<? extends WorldEvent> future;
+		/**
+		 * The event superseded by this one, if any
+		 */
+		private final PendingEvent superseded;
+
+		/**
+		 * Creates a new instance
+		 * 
+		 * @param event
+		 *            the event
+		 * @param future
+		 *            the future
+		 * @param superseded
+		 *            the event superseded by this one, if any
+		 */
+		public PendingEvent(WorldEvent event,
+				WorldEventFutureImpl<? extends WorldEvent> future,
+				PendingEvent superseded) {
 			this.event = event;
 			this.future = future;
+			this.superseded = superseded;
+		}
+	}
+
+	/**
+	 * Dispatches an event to the listeners of a single object
+	 * 
+	 * @author <a href="http://www.rogiel.com">Rogiel</a>
+	 */
+	private class DispatchTask {
+		/**
+		 * The event container
+		 */
+		private final EventContainer container;
+		/**
+		 * The dispatchable object id
+		 */
+		private final ObjectID<?> id;
+		/**
+		 * The event priority
+		 */
+		private final WorldEventPriority priority;
+		/**
+		 * Whether the event is dispatched to area listeners instead of the
+		 * object listeners
+		 */
+		private final boolean area;
+		/**
+		 * The subscriber whose area listeners are notified. <tt>null</tt> if
+		 * this task looks for the subscribers near the issuing object.
+		 */
+		private final PositionableObject subscriber;
+		/**
+		 * The area listeners of {@link #subscriber} to be notified
+		 */
+		private final List<WorldListener> listeners;
+
+		/**
+		 * Creates a new instance
+		 * 
+		 * @param container
+		 *            the event container
+		 * @param id
+		 *            the dispatchable object id
+		 * @param priority
+		 *            the event priority
+		 * @param area
+		 *            whether the event is dispatched to area listeners
+		 *            instead of the object listeners
+		 */
+		public DispatchTask(EventContainer container, ObjectID<?> id,
+				WorldEventPriority priority, boolean area) {
+			this.container = container;
+			this.id = id;
+			this.priority = priority;
+			this.area = area;
+			this.subscriber = null;
+			this.listeners = null;
+		}
+
+		/**
+		 * Creates a new instance that notifies the area listeners of a
+		 * subscriber
+		 * 
+		 * @param container
+		 *            the event container
+		 * @param subscriber
+		 *            the subscriber
+		 * @param listeners
+		 *            the area listeners of <tt>subscriber</tt> to be notified
+		 * @param priority
+		 *            the event priority
+		 */
+		public DispatchTask(EventContainer container,
+				PositionableObject subscriber, List<WorldListener> listeners,
+				WorldEventPriority priority) {
+			this.container = container;
+			this.id = subscriber.getID();
+			this.priority = priority;
+			this.area = true;
+			this.subscriber = subscriber;
+			this.listeners = listeners;
+		}
+
+		/**
+		 * Dispatches the event. The future is completed once the event has
+		 * been dispatched to all its objects.
+		 */
+		public void run() {
+			final WorldEventFutureImpl<? extends WorldEvent> future = container.future;
+			if (future != null && future.isCancelled()) {
+				metrics.discarded(container.event);
+				return;
+			}
+			final long start = System.nanoTime();
+			try {
+				logger.debug("Dispatching event {} to {}", container.event,
+						id);
+				if (future != null)
+					future.running = true;
+				if (subscriber != null)
+					doDispatchSubscriber(container.event, subscriber,
+							listeners);
+				else if (area)
+					doDispatchArea(container, priority);
+				else
+					doDispatch(container.event, id);
+			} catch (Throwable t) {
+				if (future != null)
+					future.setException(t);
+				logger.warn("Exception in WorldEventDispatcher thread", t);
+			}
+			final long end = System.nanoTime();
+			metrics.dispatched(container.event, start - container.queued, end
+					- start);
+			if (container.dispatched())
+				container.complete();
+		}
+	}
+
+	/**
+	 * A lane of events dispatched in order, whatever their priority. Only one
+	 * thread drains a lane at any given time.
+	 * 
+	 * @author <a href="http://www.rogiel.com">Rogiel</a>
+	 */
+	private class DispatchLane {
+		/**
+		 * The pending tasks
+		 */
+		private final Queue<DispatchTask> tasks = CollectionFactory
+				.newConcurrentQueue();
+		/**
+		 * Whether this lane is in the ready queue or being drained
+		 */
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+
+		/**
+		 * Queues a task in this lane
+		 * 
+		 * @param task
+		 *            the task
+		 */
+		public void add(DispatchTask task) {
+			metrics.queued(task.container.event);
+			depth[task.priority.ordinal()].incrementAndGet();
+			tasks.add(task);
+			schedule();
+		}
+
+		/**
+		 * Dispatches the pending tasks. If there are still tasks left after
+		 * {@link WorldEventDispatcherServiceImpl#LANE_BATCH_SIZE} tasks, the
+		 * lane is rescheduled.
+		 */
+		public void drain() {
+			DispatchTask task;
+			int count = 0;
+			while (count++ < LANE_BATCH_SIZE && (task = tasks.poll()) != null) {
+				depth[task.priority.ordinal()].decrementAndGet();
+				task.run();
+			}
+			scheduled.set(false);
+			if (!tasks.isEmpty())
+				schedule();
+		}
+
+		/**
+		 * Adds this lane to the ready queue of the priority of its oldest
+		 * task, unless already there or being drained
+		 */
+		private void schedule() {
+			if (this == shutdown) {
+				ready[WorldEventPriority.HIGH.ordinal()].add(this);
+				available.release();
+			} else if (scheduled.compareAndSet(false, true)) {
+				final DispatchTask head = tasks.peek();
+				final WorldEventPriority priority = (head != null ? head.priority
+						: WorldEventPriority.NORMAL);
+				ready[priority.ordinal()].add(this);
+				available.release();
+			}
 		}
 	}
 }
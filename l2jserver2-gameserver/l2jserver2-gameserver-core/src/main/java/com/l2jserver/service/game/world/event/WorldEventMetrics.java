@@ -0,0 +1,361 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.service.game.world.event;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.l2jserver.util.factory.CollectionFactory;
+
+/**
+ * Collects dispatching metrics for each {@link WorldEvent} class: the time
+ * from enqueue to dispatch, the time spent dispatching, the amount of events
+ * waiting in the queue and the amount of failures. It also reports, by class
+ * name, every listener that takes longer than the configured budget to handle
+ * an event.
+ * <p>
+ * Latencies are kept in histograms with power of two buckets, so percentiles
+ * are approximations with an error of at most 2x. This class is thread safe
+ * and never blocks.
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public class WorldEventMetrics {
+	/**
+	 * The logger
+	 */
+	private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * The metrics for each event class
+	 */
+	private final Map<Class<?>, EventMetrics> metrics = CollectionFactory
+			.newConcurrentMap();
+	/**
+	 * The time budget for a single listener, in nanoseconds. Zero disables
+	 * slow listener detection.
+	 */
+	private volatile long budget;
+
+	/**
+	 * @param budget
+	 *            the time budget for a single listener call
+	 * @param unit
+	 *            the budget unit
+	 */
+	public void setListenerBudget(long budget, TimeUnit unit) {
+		this.budget = unit.toNanos(budget);
+	}
+
+	/**
+	 * Notifies that an event has been queued
+	 * 
+	 * @param event
+	 *            the event
+	 */
+	void queued(WorldEvent event) {
+		get(event.getClass()).pending.incrementAndGet();
+	}
+
+	/**
+	 * Notifies that an event has been dispatched to one of its objects
+	 * 
+	 * @param event
+	 *            the event
+	 * @param latency
+	 *            the time from enqueue to dispatch, in nanoseconds
+	 * @param duration
+	 *            the time spent dispatching, in nanoseconds
+	 */
+	void dispatched(WorldEvent event, long latency, long duration) {
+		final EventMetrics m = get(event.getClass());
+		m.pending.decrementAndGet();
+		m.count.incrementAndGet();
+		m.latency.record(latency);
+		m.duration.record(duration);
+	}
+
+	/**
+	 * Notifies that a queued event has been discarded without being
+	 * dispatched
+	 * 
+	 * @param event
+	 *            the event
+	 */
+	void discarded(WorldEvent event) {
+		get(event.getClass()).pending.decrementAndGet();
+	}
+
+	/**
+	 * Notifies that an event has been dropped by backpressure before being
+	 * queued
+	 * 
+	 * @param event
+	 *            the event
+	 */
+	void dropped(WorldEvent event) {
+		get(event.getClass()).dropped.incrementAndGet();
+	}
+
+	/**
+	 * Notifies that a listener has handled an event
+	 * 
+	 * @param event
+	 *            the event
+	 * @param listener
+	 *            the listener
+	 * @param duration
+	 *            the time spent by the listener, in nanoseconds
+	 */
+	void handled(WorldEvent event, WorldListener listener, long duration) {
+		final long budget = this.budget;
+		if (budget <= 0 || duration <= budget)
+			return;
+		get(event.getClass()).slow.incrementAndGet();
+		log.warn("Slow listener {} took {}ms to handle {} (budget is {}ms)",
+				new Object[] { listener.getClass().getName(),
+						TimeUnit.NANOSECONDS.toMillis(duration),
+						event.getClass().getSimpleName(),
+						TimeUnit.NANOSECONDS.toMillis(budget) });
+	}
+
+	/**
+	 * Notifies that a listener has thrown an exception
+	 * 
+	 * @param event
+	 *            the event
+	 * @param listener
+	 *            the listener
+	 * @param t
+	 *            the exception
+	 */
+	void failed(WorldEvent event, WorldListener listener, Throwable t) {
+		get(event.getClass()).errors.incrementAndGet();
+		log.warn("Exception in listener {} handling {}", new Object[] {
+				listener.getClass().getName(),
+				event.getClass().getSimpleName(), t });
+	}
+
+	/**
+	 * @return the metrics for every event class dispatched so far
+	 */
+	public Map<Class<?>, EventMetrics> getMetrics() {
+		return Collections.unmodifiableMap(metrics);
+	}
+
+	/**
+	 * @return the amount of events waiting to be dispatched
+	 */
+	public long getQueueDepth() {
+		long depth = 0;
+		for (final EventMetrics m : metrics.values()) {
+			depth += m.getPending();
+		}
+		return depth;
+	}
+
+	/**
+	 * Get the metrics for the given event class. Creates a new one if does
+	 * not exists.
+	 * 
+	 * @param type
+	 *            the event class
+	 * @return the metrics. Never null.
+	 */
+	private EventMetrics get(Class<?> type) {
+		EventMetrics m = metrics.get(type);
+		if (m != null)
+			return m;
+		synchronized (metrics) {
+			m = metrics.get(type);
+			if (m == null) {
+				m = new EventMetrics();
+				metrics.put(type, m);
+			}
+			return m;
+		}
+	}
+
+	/**
+	 * The metrics for a single event class
+	 * 
+	 * @author <a href="http://www.rogiel.com">Rogiel</a>
+	 */
+	public static class EventMetrics {
+		/**
+		 * The amount of dispatches
+		 */
+		private final AtomicLong count = new AtomicLong();
+		/**
+		 * The amount of events queued but not yet dispatched
+		 */
+		private final AtomicLong pending = new AtomicLong();
+		/**
+		 * The amount of listener calls over budget
+		 */
+		private final AtomicLong slow = new AtomicLong();
+		/**
+		 * The amount of listener exceptions
+		 */
+		private final AtomicLong errors = new AtomicLong();
+		/**
+		 * The amount of events dropped by backpressure
+		 */
+		private final AtomicLong dropped = new AtomicLong();
+		/**
+		 * The time from enqueue to dispatch
+		 */
+		private final Histogram latency = new Histogram();
+		/**
+		 * The time spent dispatching
+		 */
+		private final Histogram duration = new Histogram();
+
+		/**
+		 * @return the amount of dispatches
+		 */
+		public long getCount() {
+			return count.get();
+		}
+
+		/**
+		 * @return the amount of events queued but not yet dispatched
+		 */
+		public long getPending() {
+			return pending.get();
+		}
+
+		/**
+		 * @return the amount of listener calls over budget
+		 */
+		public long getSlowListenerCount() {
+			return slow.get();
+		}
+
+		/**
+		 * @return the amount of listener exceptions
+		 */
+		public long getErrorCount() {
+			return errors.get();
+		}
+
+		/**
+		 * @return the amount of events dropped by backpressure
+		 */
+		public long getDroppedCount() {
+			return dropped.get();
+		}
+
+		/**
+		 * @return the time from enqueue to dispatch histogram, in
+		 *         nanoseconds
+		 */
+		public Histogram getLatency() {
+			return latency;
+		}
+
+		/**
+		 * @return the time spent dispatching histogram, in nanoseconds
+		 */
+		public Histogram getDuration() {
+			return duration;
+		}
+	}
+
+	/**
+	 * Lock-free histogram with power of two buckets: bucket <tt>n</tt> counts
+	 * values in <tt>[2<sup>n-1</sup>, 2<sup>n</sup>)</tt>.
+	 * 
+	 * @author <a href="http://www.rogiel.com">Rogiel</a>
+	 */
+	public static class Histogram {
+		/**
+		 * The buckets
+		 */
+		private final AtomicLongArray buckets = new AtomicLongArray(64);
+		/**
+		 * The sum of all values
+		 */
+		private final AtomicLong total = new AtomicLong();
+		/**
+		 * The amount of values
+		 */
+		private final AtomicLong count = new AtomicLong();
+		/**
+		 * The largest value
+		 */
+		private final AtomicLong maximum = new AtomicLong();
+
+		/**
+		 * Records a value
+		 * 
+		 * @param value
+		 *            the value
+		 */
+		void record(long value) {
+			if (value < 0)
+				value = 0;
+			buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+			total.addAndGet(value);
+			count.incrementAndGet();
+			long max;
+			while ((max = maximum.get()) < value
+					&& !maximum.compareAndSet(max, value))
+				;
+		}
+
+		/**
+		 * @return the average value
+		 */
+		public long getAverage() {
+			final long count = this.count.get();
+			return (count == 0 ? 0 : total.get() / count);
+		}
+
+		/**
+		 * @return the largest value
+		 */
+		public long getMaximum() {
+			return maximum.get();
+		}
+
+		/**
+		 * @param percentile
+		 *            the percentile, from 0 to 1
+		 * @return the upper bound of the bucket containing the percentile
+		 */
+		public long getPercentile(double percentile) {
+			final long count = this.count.get();
+			if (count == 0)
+				return 0;
+			final long target = (long) Math.ceil(count * percentile);
+			long seen = 0;
+			for (int i = 0; i < buckets.length(); i++) {
+				seen += buckets.get(i);
+				if (seen >= target)
+					return (i == 0 ? 0 : (i >= 63 ? Long.MAX_VALUE : 1L << i));
+			}
+			return maximum.get();
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.service.game.world.event;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The priority class of a {@link WorldEvent}. Dispatcher threads drain higher
+ * priority events more often than lower ones, so a flood of cosmetic events
+ * cannot delay combat events of other objects. Events are {@link #NORMAL}
+ * unless their class (or one of its supertypes) is annotated with
+ * {@link Priority}.
+ * <p>
+ * Priorities never reorder the events of the same object: those are always
+ * dispatched in the order they were queued.
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public enum WorldEventPriority {
+	/**
+	 * Events that affect gameplay directly, such as combat
+	 */
+	HIGH,
+	/**
+	 * Default priority
+	 */
+	NORMAL,
+	/**
+	 * Cosmetic events. Those can be dropped or coalesced under overload.
+	 */
+	LOW;
+
+	/**
+	 * Declares the priority class of an event
+	 * 
+	 * @author <a href="http://www.rogiel.com">Rogiel</a>
+	 */
+	@Documented
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(value = ElementType.TYPE)
+	public @interface Priority {
+		/**
+		 * @return the event priority class
+		 */
+		WorldEventPriority value();
+	}
+}
@@ -0,0 +1,250 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.service.game.world.event;
+
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+import com.l2jserver.util.factory.CollectionFactory;
+
+/**
+ * Keeps a set of {@link WorldListener listeners} indexed by the event types
+ * they handle. Dispatching an event only visits the listeners registered for
+ * the event class or one of its supertypes, so listeners never receive events
+ * they are not interested in.
+ * <p>
+ * Listeners that do not declare any type are registered for
+ * {@link WorldEvent}, unless they are a {@link TypedWorldListener}, in which
+ * case its own type is used.
+ * <p>
+ * This class is thread safe.
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public class WorldListenerRegistry {
+	/**
+	 * Cache of the event types each event class is an instance of
+	 */
+	private static final Map<Class<?>, Class<?>[]> hierarchies = CollectionFactory
+			.newConcurrentMap();
+
+	/**
+	 * The listeners for each event type
+	 */
+	private final Map<Class<?>, Set<WorldListener>> listeners = CollectionFactory
+			.newConcurrentMap();
+	/**
+	 * The listeners that receive each event class, resolved from
+	 * {@link #listeners}. Each listener appears only once, even if registered
+	 * for more than one type of the event. Invalidated whenever a listener is
+	 * added or removed.
+	 */
+	private final Map<Class<?>, WorldListener[]> resolved = CollectionFactory
+			.newConcurrentMap();
+
+	/**
+	 * Registers a <tt>listener</tt> for the given event <tt>types</tt>. If no
+	 * type is given, the listener type is used (see
+	 * {@link WorldListenerRegistry}).
+	 * 
+	 * @param listener
+	 *            the listener
+	 * @param types
+	 *            the event types handled by the listener
+	 */
+	public void add(WorldListener listener, Class<?>... types) {
+		Preconditions.checkNotNull(listener, "listener");
+		Preconditions.checkNotNull(types, "types");
+		synchronized (listeners) {
+			for (final Class<?> type : getTypes(listener, types)) {
+				getListeners(type).add(listener);
+			}
+			resolved.clear();
+		}
+	}
+
+	/**
+	 * Removes a <tt>listener</tt> from all event types it is registered for
+	 * 
+	 * @param listener
+	 *            the listener
+	 */
+	public void remove(WorldListener listener) {
+		Preconditions.checkNotNull(listener, "listener");
+		synchronized (listeners) {
+			for (final Set<WorldListener> set : listeners.values()) {
+				set.remove(listener);
+			}
+			resolved.clear();
+		}
+	}
+
+	/**
+	 * Dispatches the <tt>event</tt> to all listeners registered to its type or
+	 * any of its supertypes. Each listener is notified once, even if
+	 * registered for more than one of those types. Listeners returning false
+	 * or throwing an exception are removed.
+	 * 
+	 * @param event
+	 *            the event
+	 * @param metrics
+	 *            the metrics that will time each listener call
+	 */
+	public void dispatch(WorldEvent event, WorldEventMetrics metrics) {
+		Preconditions.checkNotNull(event, "event");
+		Preconditions.checkNotNull(metrics, "metrics");
+		if (listeners.isEmpty())
+			return;
+		for (final WorldListener listener : resolve(event.getClass())) {
+			final long start = System.nanoTime();
+			try {
+				if (!listener.dispatch(event))
+					// remove listener if return value is false
+					remove(listener);
+			} catch (Throwable t) {
+				metrics.failed(event, listener, t);
+				// always remove any listener that throws an exception
+				remove(listener);
+			}
+			metrics.handled(event, listener, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * @param type
+	 *            the event class
+	 * @return the amount of listeners that would receive an event of the
+	 *         given class
+	 */
+	public int count(Class<?> type) {
+		Preconditions.checkNotNull(type, "type");
+		return resolve(type).length;
+	}
+
+	/**
+	 * Removes all listeners
+	 */
+	public void clear() {
+		synchronized (listeners) {
+			listeners.clear();
+			resolved.clear();
+		}
+	}
+
+	/**
+	 * Get the listeners that receive an event of the given class, each one
+	 * only once. The result is cached until the registry changes.
+	 * 
+	 * @param type
+	 *            the event class
+	 * @return the listeners. Never null.
+	 */
+	private WorldListener[] resolve(Class<?> type) {
+		WorldListener[] array = resolved.get(type);
+		if (array != null)
+			return array;
+		synchronized (listeners) {
+			array = resolved.get(type);
+			if (array != null)
+				return array;
+			final Set<WorldListener> set = CollectionFactory.newSet();
+			for (final Class<?> supertype : getHierarchy(type)) {
+				final Set<WorldListener> registered = listeners
+						.get(supertype);
+				if (registered != null)
+					set.addAll(registered);
+			}
+			array = set.toArray(new WorldListener[set.size()]);
+			resolved.put(type, array);
+			return array;
+		}
+	}
+
+	/**
+	 * Get the {@link Set} of listeners for an given event type. Creates a new
+	 * one if does not exists. Must be called holding the {@link #listeners}
+	 * lock.
+	 * 
+	 * @param type
+	 *            the event type
+	 * @return the {@link Set}. Never null.
+	 */
+	private Set<WorldListener> getListeners(Class<?> type) {
+		Set<WorldListener> set = listeners.get(type);
+		if (set == null) {
+			set = CollectionFactory.newConcurrentSet();
+			listeners.put(type, set);
+		}
+		return set;
+	}
+
+	/**
+	 * Get the event types a listener is registered for. If no type is given,
+	 * the listener type is used (see {@link WorldListenerRegistry}).
+	 * 
+	 * @param listener
+	 *            the listener
+	 * @param types
+	 *            the declared event types
+	 * @return the event types handled by the listener
+	 */
+	static Class<?>[] getTypes(WorldListener listener, Class<?>... types) {
+		if (types.length > 0)
+			return types;
+		if (listener instanceof TypedWorldListener)
+			return new Class<?>[] { ((TypedWorldListener<?>) listener)
+					.getType() };
+		return new Class<?>[] { WorldEvent.class };
+	}
+
+	/**
+	 * Get all types an event class is an instance of: the class itself, its
+	 * superclasses and all implemented interfaces.
+	 * 
+	 * @param type
+	 *            the event class
+	 * @return the event type hierarchy
+	 */
+	private static Class<?>[] getHierarchy(Class<?> type) {
+		Class<?>[] hierarchy = hierarchies.get(type);
+		if (hierarchy != null)
+			return hierarchy;
+		final Set<Class<?>> types = CollectionFactory.newSet();
+		collect(type, types);
+		hierarchy = types.toArray(new Class<?>[types.size()]);
+		hierarchies.put(type, hierarchy);
+		return hierarchy;
+	}
+
+	/**
+	 * Adds <tt>type</tt> and all its supertypes to <tt>types</tt>
+	 * 
+	 * @param type
+	 *            the type
+	 * @param types
+	 *            the collected types
+	 */
+	private static void collect(Class<?> type, Set<Class<?>> types) {
+		if (type == null || !types.add(type))
+			return;
+		collect(type.getSuperclass(), types);
+		for (final Class<?> iface : type.getInterfaces()) {
+			collect(iface, types);
+		}
+	}
+}
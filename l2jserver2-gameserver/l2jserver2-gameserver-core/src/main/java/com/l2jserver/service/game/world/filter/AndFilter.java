@@ -52,4 +52,11 @@ public class AndFilter<O extends WorldObject> implements WorldObjectFilter<O> {
 		}
 		return true;
 	}
+
+	/**
+	 * @return the filters used with <tt>AND</tt> operator
+	 */
+	public WorldObjectFilter<O>[] getFilters() {
+		return filters;
+	}
 }
@@ -47,4 +47,11 @@ public class NotFilter<O extends WorldObject> implements WorldObjectFilter<O> {
 	public boolean accept(O object) {
 		return !filter.accept(object);
 	}
+
+	/**
+	 * @return the negated filter
+	 */
+	public WorldObjectFilter<O> getFilter() {
+		return filter;
+	}
 }
@@ -52,4 +52,11 @@ public class OrFilter<O extends WorldObject> implements WorldObjectFilter<O> {
 		}
 		return false;
 	}
+
+	/**
+	 * @return the filters used with <tt>OR</tt> operator
+	 */
+	public WorldObjectFilter<O>[] getFilters() {
+		return filters;
+	}
 }
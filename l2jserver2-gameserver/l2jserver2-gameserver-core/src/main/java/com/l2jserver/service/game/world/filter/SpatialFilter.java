@@ -0,0 +1,47 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.service.game.world.filter;
+
+import com.l2jserver.model.world.WorldObject;
+import com.l2jserver.service.game.world.WorldService;
+import com.l2jserver.util.geometry.Point3D;
+
+/**
+ * Filter that only accepts objects within an certain <tt>range</tt> of an
+ * center point. Filters implementing this interface (or {@link AndFilter
+ * AndFilters} containing one of them) are resolved by {@link WorldService}
+ * through its spatial index, instead of testing every object in the world.
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ * 
+ * @param <O>
+ *            the object type
+ */
+public interface SpatialFilter<O extends WorldObject> extends
+		WorldObjectFilter<O> {
+	/**
+	 * @return the center point of the range. Can be <code>null</code> if the
+	 *         center is not positioned in the world.
+	 */
+	Point3D getCenter();
+
+	/**
+	 * @return the maximum distance (on any axis) an object can be from the
+	 *         center
+	 */
+	double getRange();
+}
@@ -43,6 +43,13 @@ public class IDFilter implements WorldObjectFilter<WorldObject> {
 		this.id = id;
 	}
 
+	/**
+	 * @return the object id
+	 */
+	public ObjectID<?> getID() {
+		return id;
+	}
+
 	@Override
 	public boolean accept(WorldObject other) {
 		if (other == null)
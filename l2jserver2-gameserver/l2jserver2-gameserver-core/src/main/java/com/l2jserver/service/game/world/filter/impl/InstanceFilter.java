@@ -45,6 +45,13 @@ public class InstanceFilter<T extends WorldObject> implements
 		this.type = instance;
 	}
 
+	/**
+	 * @return the object's type
+	 */
+	public Class<?> getType() {
+		return type;
+	}
+
 	@Override
 	public boolean accept(T other) {
 		if (other == null)
@@ -18,6 +18,7 @@ package com.l2jserver.service.game.world.filter.impl;
 
 import com.l2jserver.model.world.PositionableObject;
 import com.l2jserver.model.world.WorldObject;
+import com.l2jserver.service.game.world.WorldServiceConfiguration;
 import com.l2jserver.service.game.world.filter.AndFilter;
 import com.l2jserver.service.game.world.filter.ExcludeFilter;
 
@@ -29,7 +30,9 @@ import com.l2jserver.service.game.world.filter.ExcludeFilter;
  */
 public class KnownListFilter extends AndFilter<PositionableObject> {
 	/**
-	 * Constant declaring the range in which knownlist will be scanned
+	 * Constant declaring the default range in which knownlist will be scanned.
+	 * The ranges actually used to maintain known lists are configured in
+	 * {@link WorldServiceConfiguration}.
 	 */
 	public static final int KNOWNLIST_RANGE = 2000;
 
@@ -38,8 +41,18 @@ public class KnownListFilter extends AndFilter<PositionableObject> {
 	 *            the object to locate known objects
 	 */
 	public KnownListFilter(PositionableObject object) {
+		this(object, KNOWNLIST_RANGE);
+	}
+
+	/**
+	 * @param object
+	 *            the object to locate known objects
+	 * @param range
+	 *            the range in which objects are known
+	 */
+	public KnownListFilter(PositionableObject object, int range) {
 		super(new InstanceFilter<PositionableObject>(PositionableObject.class),
-				new RangeFilter(object, KNOWNLIST_RANGE),
+				new RangeFilter(object, range),
 				new ExcludeFilter<PositionableObject>(object));
 	}
 }
@@ -20,14 +20,15 @@ import org.apache.commons.math.util.FastMath;
 
 import com.google.common.base.Preconditions;
 import com.l2jserver.model.world.PositionableObject;
-import com.l2jserver.service.game.world.filter.WorldObjectFilter;
+import com.l2jserver.service.game.world.filter.SpatialFilter;
+import com.l2jserver.util.geometry.Point3D;
 
 /**
  * Filter objects that are in the <tt>range</tt> of <tt>coordinate</tt>
  * 
  * @author <a href="http://www.rogiel.com">Rogiel</a>
  */
-public class RangeFilter implements WorldObjectFilter<PositionableObject> {
+public class RangeFilter implements SpatialFilter<PositionableObject> {
 	/**
 	 * The coordinate point
 	 */
@@ -56,7 +57,34 @@ public class RangeFilter implements WorldObjectFilter<PositionableObject> {
 	public boolean accept(PositionableObject other) {
 		if (other == null)
 			return false;
-		if (other.getPoint() == null)
+		return inRange(object, other, range);
+	}
+
+	@Override
+	public Point3D getCenter() {
+		return object.getPoint();
+	}
+
+	@Override
+	public double getRange() {
+		return range;
+	}
+
+	/**
+	 * Tests if two objects are in range of each other. The range is tested
+	 * independently in each axis.
+	 * 
+	 * @param object
+	 *            the first object
+	 * @param other
+	 *            the second object
+	 * @param range
+	 *            the range
+	 * @return true if both objects have a point and are in range
+	 */
+	public static boolean inRange(PositionableObject object,
+			PositionableObject other, double range) {
+		if (object.getPoint() == null || other.getPoint() == null)
 			return false;
 
 		final double dx = FastMath.abs(object.getPoint().getX()
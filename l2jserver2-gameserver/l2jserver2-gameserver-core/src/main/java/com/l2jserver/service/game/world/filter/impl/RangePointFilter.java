@@ -20,7 +20,7 @@ import org.apache.commons.math.util.FastMath;
 
 import com.google.common.base.Preconditions;
 import com.l2jserver.model.world.PositionableObject;
-import com.l2jserver.service.game.world.filter.WorldObjectFilter;
+import com.l2jserver.service.game.world.filter.SpatialFilter;
 import com.l2jserver.util.geometry.Point3D;
 
 /**
@@ -28,7 +28,7 @@ import com.l2jserver.util.geometry.Point3D;
  * 
  * @author <a href="http://www.rogiel.com">Rogiel</a>
  */
-public class RangePointFilter implements WorldObjectFilter<PositionableObject> {
+public class RangePointFilter implements SpatialFilter<PositionableObject> {
 	/**
 	 * The coordinate point
 	 */
@@ -70,4 +70,14 @@ public class RangePointFilter implements WorldObjectFilter<PositionableObject> {
 
 		return true;
 	}
+
+	@Override
+	public Point3D getCenter() {
+		return point;
+	}
+
+	@Override
+	public double getRange() {
+		return range;
+	}
 }
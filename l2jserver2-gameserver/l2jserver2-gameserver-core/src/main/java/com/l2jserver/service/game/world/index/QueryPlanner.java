@@ -0,0 +1,545 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.service.game.world.index;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+import com.l2jserver.model.world.PositionableObject;
+import com.l2jserver.model.world.WorldObject;
+import com.l2jserver.service.game.world.filter.AndFilter;
+import com.l2jserver.service.game.world.filter.FilterIterator;
+import com.l2jserver.service.game.world.filter.NotFilter;
+import com.l2jserver.service.game.world.filter.OrFilter;
+import com.l2jserver.service.game.world.filter.SpatialFilter;
+import com.l2jserver.service.game.world.filter.WorldObjectFilter;
+import com.l2jserver.service.game.world.filter.impl.IDFilter;
+import com.l2jserver.service.game.world.filter.impl.InstanceFilter;
+import com.l2jserver.util.collection.ConcurrentIntObjectMap;
+import com.l2jserver.util.factory.CollectionFactory;
+import com.l2jserver.util.geometry.Point3D;
+
+/**
+ * Resolves {@link WorldObjectFilter} queries using the world indexes. The
+ * filter tree is inspected and the most selective indexed part is used to
+ * select the candidate objects:
+ * <ul>
+ * <li>{@link IDFilter} is resolved with a single lookup in the ID index;</li>
+ * <li>{@link SpatialFilter} is resolved with the {@link SpatialIndex} cells
+ * overlapping its range;</li>
+ * <li>{@link InstanceFilter} is resolved with the {@link TypeIndex}
+ * partition;</li>
+ * <li>{@link AndFilter} uses the cheapest of its indexed children;</li>
+ * <li>{@link OrFilter} uses the union of its children, if all of them can be
+ * indexed;</li>
+ * <li>{@link NotFilter} of an {@link NotFilter} is unwrapped.</li>
+ * </ul>
+ * Filters that cannot be indexed fall back to a full scan. Candidates are then
+ * tested against the residual filter: the original filter without the part
+ * already answered exactly by the index.
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public class QueryPlanner {
+	/**
+	 * All objects in the world, used for full scans
+	 */
+	private final Collection<WorldObject> objects;
+	/**
+	 * The ID index
+	 */
+	private final ConcurrentIntObjectMap<WorldObject> ids;
+	/**
+	 * The type index
+	 */
+	private final TypeIndex types;
+	/**
+	 * The spatial index
+	 */
+	private final SpatialIndex spatial;
+
+	/**
+	 * Creates a new planner
+	 * 
+	 * @param objects
+	 *            all objects in the world
+	 * @param ids
+	 *            the ID index
+	 * @param types
+	 *            the type index
+	 * @param spatial
+	 *            the spatial index
+	 */
+	public QueryPlanner(Collection<WorldObject> objects,
+			ConcurrentIntObjectMap<WorldObject> ids, TypeIndex types,
+			SpatialIndex spatial) {
+		this.objects = objects;
+		this.ids = ids;
+		this.types = types;
+		this.spatial = spatial;
+	}
+
+	/**
+	 * Creates an iterator for all objects accepted by <tt>filter</tt>
+	 * 
+	 * @param <T>
+	 *            the object type
+	 * @param filter
+	 *            the filter
+	 * @return the iterator
+	 */
+	public <T extends WorldObject> Iterator<T> iterator(
+			WorldObjectFilter<T> filter) {
+		Preconditions.checkNotNull(filter, "filter");
+		AccessPath path = plan(filter);
+		if (path == null)
+			path = new ScanPath();
+		return new FilterIterator<T>(residual(filter, path), path.iterator());
+	}
+
+	/**
+	 * Selects the cheapest index access path for <tt>filter</tt>
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @return the access path or <code>null</code> if the filter cannot be
+	 *         resolved by any index
+	 */
+	private AccessPath plan(WorldObjectFilter<?> filter) {
+		if (filter instanceof IDFilter) {
+			return new IDPath(filter, ((IDFilter) filter).getID().getID());
+		} else if (filter instanceof SpatialFilter) {
+			final Point3D center = ((SpatialFilter<?>) filter).getCenter();
+			if (center == null)
+				return null;
+			return new CellPath(filter, center,
+					((SpatialFilter<?>) filter).getRange());
+		} else if (filter instanceof InstanceFilter) {
+			final Class<?> type = ((InstanceFilter<?>) filter).getType();
+			final Class<?> partitioned = types.getPartitionType(type);
+			if (partitioned == null)
+				return null;
+			return new PartitionPath(filter, types.getPartition(partitioned),
+					partitioned == type);
+		} else if (filter instanceof AndFilter) {
+			AccessPath best = null;
+			for (final WorldObjectFilter<?> child : ((AndFilter<?>) filter)
+					.getFilters()) {
+				final AccessPath path = plan(child);
+				if (path != null && (best == null || path.cost < best.cost))
+					best = path;
+			}
+			return best;
+		} else if (filter instanceof OrFilter) {
+			final WorldObjectFilter<?>[] children = ((OrFilter<?>) filter)
+					.getFilters();
+			final AccessPath[] paths = new AccessPath[children.length];
+			for (int i = 0; i < children.length; i++) {
+				paths[i] = plan(children[i]);
+				if (paths[i] == null)
+					return null;
+			}
+			return new UnionPath(filter, children, paths);
+		} else if (filter instanceof NotFilter) {
+			final WorldObjectFilter<?> negated = ((NotFilter<?>) filter)
+					.getFilter();
+			if (negated instanceof NotFilter)
+				return plan(((NotFilter<?>) negated).getFilter());
+		}
+		return null;
+	}
+
+	/**
+	 * Creates the residual filter: the part of <tt>filter</tt> that still
+	 * needs to be tested for every candidate returned by <tt>path</tt>.
+	 * 
+	 * @param <T>
+	 *            the object type
+	 * @param filter
+	 *            the filter
+	 * @param path
+	 *            the access path
+	 * @return the residual filter
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends WorldObject> WorldObjectFilter<T> residual(
+			WorldObjectFilter<T> filter, AccessPath path) {
+		if (!path.exact)
+			return filter;
+		if (path.filter == filter)
+			return new WorldObjectFilter<T>() {
+				@Override
+				public boolean accept(T object) {
+					return true;
+				}
+			};
+		if (!(filter instanceof AndFilter))
+			return filter;
+		final List<WorldObjectFilter<T>> remaining = CollectionFactory
+				.newList();
+		boolean found = false;
+		for (final WorldObjectFilter<T> child : ((AndFilter<T>) filter)
+				.getFilters()) {
+			if (child == path.filter)
+				found = true;
+			else
+				remaining.add(child);
+		}
+		if (!found)
+			return filter;
+		if (remaining.size() == 1)
+			return remaining.get(0);
+		return new AndFilter<T>(remaining.toArray(new WorldObjectFilter[0]));
+	}
+
+	/**
+	 * Determines the type of the objects <tt>filter</tt> can be tested
+	 * against. Objects of any other type are never accepted by the filter.
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @return the type of the objects accepted by <tt>filter</tt>
+	 */
+	private static Class<?> type(WorldObjectFilter<?> filter) {
+		if (filter instanceof InstanceFilter) {
+			return ((InstanceFilter<?>) filter).getType();
+		} else if (filter instanceof SpatialFilter) {
+			return PositionableObject.class;
+		} else if (filter instanceof AndFilter) {
+			// the most specific type of all children
+			Class<?> type = WorldObject.class;
+			for (final WorldObjectFilter<?> child : ((AndFilter<?>) filter)
+					.getFilters()) {
+				final Class<?> childType = type(child);
+				if (type.isAssignableFrom(childType))
+					type = childType;
+			}
+			return type;
+		} else if (filter instanceof OrFilter) {
+			// the most general type of all children
+			Class<?> type = null;
+			for (final WorldObjectFilter<?> child : ((OrFilter<?>) filter)
+					.getFilters()) {
+				final Class<?> childType = type(child);
+				if (type == null || childType.isAssignableFrom(type))
+					type = childType;
+				else if (!type.isAssignableFrom(childType))
+					return WorldObject.class;
+			}
+			return (type != null ? type : WorldObject.class);
+		}
+		return WorldObject.class;
+	}
+
+	/**
+	 * An way of selecting candidate objects from the world
+	 * 
+	 * @author <a href="http://www.rogiel.com">Rogiel</a>
+	 */
+	private static abstract class AccessPath {
+		/**
+		 * The filter answered by this path
+		 */
+		protected final WorldObjectFilter<?> filter;
+		/**
+		 * The estimated amount of candidates
+		 */
+		protected final int cost;
+		/**
+		 * Whether all candidates are accepted by {@link #filter}
+		 */
+		protected final boolean exact;
+
+		/**
+		 * @param filter
+		 *            the filter answered by this path
+		 * @param cost
+		 *            the estimated amount of candidates
+		 * @param exact
+		 *            whether all candidates are accepted by <tt>filter</tt>
+		 */
+		protected AccessPath(WorldObjectFilter<?> filter, int cost,
+				boolean exact) {
+			this.filter = filter;
+			this.cost = cost;
+			this.exact = exact;
+		}
+
+		/**
+		 * @return an iterator for the candidate objects
+		 */
+		protected abstract Iterator<WorldObject> iterator();
+	}
+
+	/**
+	 * Scans all objects in the world
+	 * 
+	 * @author <a href="http://www.rogiel.com">Rogiel</a>
+	 */
+	private class ScanPath extends AccessPath {
+		/**
+		 * Creates a new instance
+		 */
+		public ScanPath() {
+			super(null, objects.size(), false);
+		}
+
+		@Override
+		protected Iterator<WorldObject> iterator() {
+			return objects.iterator();
+		}
+	}
+
+	/**
+	 * Looks up a single object in the ID index
+	 * 
+	 * @author <a href="http://www.rogiel.com">Rogiel</a>
+	 */
+	private class IDPath extends AccessPath {
+		/**
+		 * The object found, if any
+		 */
+		private final WorldObject object;
+
+		/**
+		 * @param filter
+		 *            the filter
+		 * @param id
+		 *            the raw object id
+		 */
+		public IDPath(WorldObjectFilter<?> filter, int id) {
+			this(filter, ids.get(id));
+		}
+
+		/**
+		 * @param filter
+		 *            the filter
+		 * @param object
+		 *            the object found, if any
+		 */
+		private IDPath(WorldObjectFilter<?> filter, WorldObject object) {
+			super(filter, (object != null ? 1 : 0), true);
+			this.object = object;
+		}
+
+		@Override
+		protected Iterator<WorldObject> iterator() {
+			if (object == null)
+				return Collections.<WorldObject> emptySet().iterator();
+			return Collections.singleton(object).iterator();
+		}
+	}
+
+	/**
+	 * Visits the spatial index cells overlapping a range
+	 * 
+	 * @author <a href="http://www.rogiel.com">Rogiel</a>
+	 */
+	private class CellPath extends AccessPath {
+		/**
+		 * The range center
+		 */
+		private final Point3D center;
+		/**
+		 * The range
+		 */
+		private final double range;
+
+		/**
+		 * @param filter
+		 *            the filter
+		 * @param center
+		 *            the range center
+		 * @param range
+		 *            the range
+		 */
+		public CellPath(WorldObjectFilter<?> filter, Point3D center,
+				double range) {
+			super(filter, spatial.count(center, range), false);
+			this.center = center;
+			this.range = range;
+		}
+
+		@Override
+		protected Iterator<WorldObject> iterator() {
+			return spatial.iterator(center, range);
+		}
+	}
+
+	/**
+	 * Visits a type index partition
+	 * 
+	 * @author <a href="http://www.rogiel.com">Rogiel</a>
+	 */
+	private static class PartitionPath extends AccessPath {
+		/**
+		 * The partition
+		 */
+		private final Set<WorldObject> partition;
+
+		/**
+		 * @param filter
+		 *            the filter
+		 * @param partition
+		 *            the partition
+		 * @param exact
+		 *            whether the partition type is the filtered type
+		 */
+		public PartitionPath(WorldObjectFilter<?> filter,
+				Set<WorldObject> partition, boolean exact) {
+			super(filter, partition.size(), exact);
+			this.partition = partition;
+		}
+
+		@Override
+		protected Iterator<WorldObject> iterator() {
+			return partition.iterator();
+		}
+	}
+
+	/**
+	 * Concatenates the objects accepted by several paths, skipping objects
+	 * already returned by a previous path. Since each path filter is also
+	 * tested against the candidates of the other paths, a filter is only
+	 * given objects of the {@link QueryPlanner#type(WorldObjectFilter) type}
+	 * it handles.
+	 * 
+	 * @author <a href="http://www.rogiel.com">Rogiel</a>
+	 */
+	private static class UnionPath extends AccessPath {
+		/**
+		 * The filters of each path
+		 */
+		private final WorldObjectFilter<?>[] filters;
+		/**
+		 * The type of the objects handled by each filter
+		 */
+		private final Class<?>[] types;
+		/**
+		 * The paths
+		 */
+		private final AccessPath[] paths;
+
+		/**
+		 * @param filter
+		 *            the filter
+		 * @param filters
+		 *            the filters of each path
+		 * @param paths
+		 *            the paths
+		 */
+		public UnionPath(WorldObjectFilter<?> filter,
+				WorldObjectFilter<?>[] filters, AccessPath[] paths) {
+			super(filter, cost(paths), true);
+			this.filters = filters;
+			this.types = new Class<?>[filters.length];
+			for (int i = 0; i < filters.length; i++) {
+				types[i] = type(filters[i]);
+			}
+			this.paths = paths;
+		}
+
+		@Override
+		protected Iterator<WorldObject> iterator() {
+			return new Iterator<WorldObject>() {
+				private int index = 0;
+				private Iterator<WorldObject> current = paths[0].iterator();
+				private WorldObject selected;
+
+				@Override
+				public boolean hasNext() {
+					while (selected == null) {
+						if (current.hasNext()) {
+							final WorldObject object = current.next();
+							if (accept(index, object)
+									&& !acceptedBefore(object))
+								selected = object;
+						} else if (++index < paths.length) {
+							current = paths[index].iterator();
+						} else {
+							return false;
+						}
+					}
+					return true;
+				}
+
+				@Override
+				public WorldObject next() {
+					if (!hasNext())
+						throw new NoSuchElementException();
+					try {
+						return selected;
+					} finally {
+						selected = null;
+					}
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+
+				/**
+				 * @param object
+				 *            the object
+				 * @return true if an previous path already returned the
+				 *         object
+				 */
+				private boolean acceptedBefore(WorldObject object) {
+					for (int i = 0; i < index; i++) {
+						if (accept(i, object))
+							return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		/**
+		 * @param path
+		 *            the path index
+		 * @param object
+		 *            the object
+		 * @return true if the filter of <tt>path</tt> accepts <tt>object</tt>
+		 */
+		@SuppressWarnings("unchecked")
+		private boolean accept(int path, WorldObject object) {
+			if (!types[path].isInstance(object))
+				return false;
+			return ((WorldObjectFilter<WorldObject>) filters[path])
+					.accept(object);
+		}
+
+		/**
+		 * @param paths
+		 *            the paths
+		 * @return the total cost of all paths
+		 */
+		private static int cost(AccessPath[] paths) {
+			int cost = 0;
+			for (final AccessPath path : paths) {
+				cost += path.cost;
+			}
+			return cost;
+		}
+	}
+}
@@ -0,0 +1,409 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.service.game.world.index;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.common.base.Preconditions;
+import com.l2jserver.model.world.PositionableObject;
+import com.l2jserver.model.world.WorldObject;
+import com.l2jserver.service.game.world.WorldService.RangeVisitor;
+import com.l2jserver.util.factory.CollectionFactory;
+import com.l2jserver.util.geometry.Point3D;
+
+/**
+ * This index partitions the world map into square cells of
+ * {@link #CELL_SIZE} units and keeps track of which {@link PositionableObject
+ * objects} are inside each cell. Range queries only need to visit the cells
+ * overlapping the requested range, which makes them cost proportional to the
+ * amount of nearby objects instead of the amount of objects in the whole
+ * world.
+ * <p>
+ * Objects are indexed by {@link PositionableObject#getPoint()}. Because the
+ * index cannot detect position changes by itself,
+ * {@link #update(PositionableObject)} must be called every time an indexed
+ * object moves. Objects without a point are not indexed at all.
+ * <p>
+ * Coordinates outside the world boundaries are clamped into the border cells,
+ * so the index will never lose an object. Since a cell is a superset of the
+ * range, callers must still test every returned object against the range.
+ * <p>
+ * This class is thread safe. Reads do not lock and iterators are weakly
+ * consistent: an object moving while a query runs may or may not be returned.
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public class SpatialIndex {
+	/**
+	 * The amount of bits to shift an coordinate to get its cell
+	 */
+	public static final int CELL_SHIFT = 11;
+	/**
+	 * The size of each cell, in world units
+	 */
+	public static final int CELL_SIZE = 1 << CELL_SHIFT;
+
+	/**
+	 * The world minimum X coordinate
+	 */
+	public static final int WORLD_MIN_X = -327680;
+	/**
+	 * The world maximum X coordinate
+	 */
+	public static final int WORLD_MAX_X = 262144;
+	/**
+	 * The world minimum Y coordinate
+	 */
+	public static final int WORLD_MIN_Y = -262144;
+	/**
+	 * The world maximum Y coordinate
+	 */
+	public static final int WORLD_MAX_Y = 327680;
+
+	/**
+	 * The amount of cells in the X axis
+	 */
+	private static final int CELLS_X = (WORLD_MAX_X - WORLD_MIN_X) >> CELL_SHIFT;
+	/**
+	 * The amount of cells in the Y axis
+	 */
+	private static final int CELLS_Y = (WORLD_MAX_Y - WORLD_MIN_Y) >> CELL_SHIFT;
+
+	/**
+	 * The cells. Each cell is lazily created once the first object enters it.
+	 */
+	private final AtomicReferenceArray<Set<PositionableObject>> cells;
+	/**
+	 * Maps each indexed object to the cell it is currently registered in
+	 */
+	private final Map<PositionableObject, Set<PositionableObject>> locations = CollectionFactory
+			.newConcurrentMap();
+
+	/**
+	 * Creates a new empty index
+	 */
+	public SpatialIndex() {
+		cells = new AtomicReferenceArray<Set<PositionableObject>>(CELLS_X
+				* CELLS_Y);
+	}
+
+	/**
+	 * Adds an object to the index. If the object has no point, nothing is
+	 * done.
+	 * 
+	 * @param object
+	 *            the object
+	 */
+	public void add(PositionableObject object) {
+		Preconditions.checkNotNull(object, "object");
+		final Point3D point = object.getPoint();
+		if (point == null)
+			return;
+		synchronized (object) {
+			final Set<PositionableObject> cell = getCell(point);
+			cell.add(object);
+			locations.put(object, cell);
+		}
+	}
+
+	/**
+	 * Removes an object from the index
+	 * 
+	 * @param object
+	 *            the object
+	 */
+	public void remove(PositionableObject object) {
+		Preconditions.checkNotNull(object, "object");
+		synchronized (object) {
+			final Set<PositionableObject> cell = locations.remove(object);
+			if (cell != null)
+				cell.remove(object);
+		}
+	}
+
+	/**
+	 * Moves the object to the cell of its current point. If the object is
+	 * still in the same cell, nothing is changed.
+	 * 
+	 * @param object
+	 *            the object
+	 */
+	public void update(PositionableObject object) {
+		Preconditions.checkNotNull(object, "object");
+		final Point3D point = object.getPoint();
+		if (point == null) {
+			remove(object);
+			return;
+		}
+		synchronized (object) {
+			final Set<PositionableObject> cell = getCell(point);
+			final Set<PositionableObject> old = locations.put(object, cell);
+			if (old == cell)
+				return;
+			// add before removing, so the object is never missing from both
+			cell.add(object);
+			if (old != null)
+				old.remove(object);
+		}
+	}
+
+	/**
+	 * Creates an iterator for all objects in the cells overlapping the square
+	 * of side <tt>range * 2</tt> centered in <tt>center</tt>. Note that
+	 * objects returned might be outside the range and must be tested
+	 * individually.
+	 * 
+	 * @param center
+	 *            the center point
+	 * @param range
+	 *            the range
+	 * @return the iterator of objects in the overlapping cells
+	 */
+	public Iterator<WorldObject> iterator(Point3D center, double range) {
+		Preconditions.checkNotNull(center, "center");
+		Preconditions.checkArgument(range >= 0, "range < 0");
+		return new CellIterator(cellX((int) (center.getX() - range)),
+				cellY((int) (center.getY() - range)),
+				cellX((int) (center.getX() + range)),
+				cellY((int) (center.getY() + range)));
+	}
+
+	/**
+	 * Calls <tt>visitor</tt> for every object of type <tt>type</tt> whose
+	 * distance to the given coordinate is at most <tt>range</tt> in every
+	 * axis. Cells are scanned in place, so no intermediate iterator or
+	 * collection is created besides the cell own iterators.
+	 * 
+	 * @param <T>
+	 *            the object type
+	 * @param x
+	 *            the center x coordinate
+	 * @param y
+	 *            the center y coordinate
+	 * @param z
+	 *            the center z coordinate
+	 * @param range
+	 *            the range
+	 * @param type
+	 *            the object type
+	 * @param visitor
+	 *            the visitor
+	 * @return false if the visitor has stopped the scan, true otherwise
+	 */
+	public <T extends PositionableObject> boolean forEach(int x, int y, int z,
+			int range, Class<T> type, RangeVisitor<? super T> visitor) {
+		Preconditions.checkNotNull(type, "type");
+		Preconditions.checkNotNull(visitor, "visitor");
+		Preconditions.checkArgument(range >= 0, "range < 0");
+		final int x1 = cellX(x - range);
+		final int y1 = cellY(y - range);
+		final int x2 = cellX(x + range);
+		final int y2 = cellY(y + range);
+		for (int cy = y1; cy <= y2; cy++) {
+			for (int cx = x1; cx <= x2; cx++) {
+				final Set<PositionableObject> cell = cells.get(cy * CELLS_X
+						+ cx);
+				if (cell == null)
+					continue;
+				for (final PositionableObject object : cell) {
+					if (!type.isInstance(object))
+						continue;
+					final Point3D point = object.getPoint();
+					if (point == null)
+						continue;
+					if (Math.abs(point.getX() - x) > range
+							|| Math.abs(point.getY() - y) > range
+							|| Math.abs(point.getZ() - z) > range)
+						continue;
+					if (!visitor.visit(type.cast(object)))
+						return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Counts the objects in the cells overlapping the square of side
+	 * <tt>range * 2</tt> centered in <tt>center</tt>, that is, the amount of
+	 * objects {@link #iterator(Point3D, double)} would return.
+	 * 
+	 * @param center
+	 *            the center point
+	 * @param range
+	 *            the range
+	 * @return the amount of objects in the overlapping cells
+	 */
+	public int count(Point3D center, double range) {
+		Preconditions.checkNotNull(center, "center");
+		Preconditions.checkArgument(range >= 0, "range < 0");
+		final int x1 = cellX((int) (center.getX() - range));
+		final int y1 = cellY((int) (center.getY() - range));
+		final int x2 = cellX((int) (center.getX() + range));
+		final int y2 = cellY((int) (center.getY() + range));
+		int count = 0;
+		for (int y = y1; y <= y2; y++) {
+			for (int x = x1; x <= x2; x++) {
+				final Set<PositionableObject> cell = cells.get(y * CELLS_X + x);
+				if (cell != null)
+					count += cell.size();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Removes all objects from the index
+	 */
+	public void clear() {
+		for (int i = 0; i < cells.length(); i++) {
+			cells.set(i, null);
+		}
+		locations.clear();
+	}
+
+	/**
+	 * Get the cell for the given point. Creates the cell if it does not
+	 * exists yet.
+	 * 
+	 * @param point
+	 *            the point
+	 * @return the cell. Never null.
+	 */
+	private Set<PositionableObject> getCell(Point3D point) {
+		final int index = cellY(point.getY()) * CELLS_X + cellX(point.getX());
+		final Set<PositionableObject> cell = cells.get(index);
+		if (cell != null)
+			return cell;
+		final Set<PositionableObject> created = CollectionFactory
+				.newConcurrentSet();
+		if (cells.compareAndSet(index, null, created))
+			return created;
+		return cells.get(index);
+	}
+
+	/**
+	 * @param x
+	 *            the x coordinate
+	 * @return the cell column for the coordinate, clamped to the world
+	 */
+	private static int cellX(int x) {
+		final int cx = (x - WORLD_MIN_X) >> CELL_SHIFT;
+		if (cx < 0)
+			return 0;
+		if (cx >= CELLS_X)
+			return CELLS_X - 1;
+		return cx;
+	}
+
+	/**
+	 * @param y
+	 *            the y coordinate
+	 * @return the cell row for the coordinate, clamped to the world
+	 */
+	private static int cellY(int y) {
+		final int cy = (y - WORLD_MIN_Y) >> CELL_SHIFT;
+		if (cy < 0)
+			return 0;
+		if (cy >= CELLS_Y)
+			return CELLS_Y - 1;
+		return cy;
+	}
+
+	/**
+	 * Iterates over all objects in a rectangle of cells
+	 * 
+	 * @author <a href="http://www.rogiel.com">Rogiel</a>
+	 */
+	private class CellIterator implements Iterator<WorldObject> {
+		/**
+		 * The first cell column
+		 */
+		private final int x1;
+		/**
+		 * The last cell column
+		 */
+		private final int x2;
+		/**
+		 * The last cell row
+		 */
+		private final int y2;
+		/**
+		 * The current cell column
+		 */
+		private int x;
+		/**
+		 * The current cell row
+		 */
+		private int y;
+		/**
+		 * The iterator for the current cell
+		 */
+		private Iterator<PositionableObject> current;
+
+		/**
+		 * Creates a new instance
+		 * 
+		 * @param x1
+		 *            the first cell column
+		 * @param y1
+		 *            the first cell row
+		 * @param x2
+		 *            the last cell column
+		 * @param y2
+		 *            the last cell row
+		 */
+		public CellIterator(int x1, int y1, int x2, int y2) {
+			this.x1 = x1;
+			this.x2 = x2;
+			this.y2 = y2;
+			this.x = x1;
+			this.y = y1;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (current == null || !current.hasNext()) {
+				if (y > y2)
+					return false;
+				final Set<PositionableObject> cell = cells.get(y * CELLS_X + x);
+				current = (cell != null ? cell.iterator() : null);
+				if (++x > x2) {
+					x = x1;
+					y++;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public WorldObject next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			return current.next();
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
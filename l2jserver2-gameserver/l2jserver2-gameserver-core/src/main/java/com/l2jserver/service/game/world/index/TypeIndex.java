@@ -0,0 +1,130 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.service.game.world.index;
+
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+import com.l2jserver.model.world.WorldObject;
+import com.l2jserver.util.factory.CollectionFactory;
+
+/**
+ * This index partitions world objects by their type. Only a fixed set of types
+ * is partitioned: an object is registered in every partition whose type it is
+ * an instance of. Queries for a partitioned type (or any of its subtypes) only
+ * need to visit the objects in that partition.
+ * <p>
+ * This class is thread safe: partitions are concurrent sets and iterating them
+ * is weakly consistent.
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public class TypeIndex {
+	/**
+	 * The partitioned types
+	 */
+	private final Class<?>[] types;
+	/**
+	 * The partitions, one for each type
+	 */
+	private final Map<Class<?>, Set<WorldObject>> partitions = CollectionFactory
+			.newMap();
+
+	/**
+	 * Creates a new index
+	 * 
+	 * @param types
+	 *            the types to be partitioned
+	 */
+	public TypeIndex(Class<?>... types) {
+		Preconditions.checkNotNull(types, "types");
+		this.types = types;
+		for (final Class<?> type : types) {
+			final Set<WorldObject> partition = CollectionFactory
+					.newConcurrentSet();
+			partitions.put(type, partition);
+		}
+	}
+
+	/**
+	 * Adds an object to all partitions it belongs to
+	 * 
+	 * @param object
+	 *            the object
+	 */
+	public void add(WorldObject object) {
+		Preconditions.checkNotNull(object, "object");
+		for (final Class<?> type : types) {
+			if (type.isInstance(object))
+				partitions.get(type).add(object);
+		}
+	}
+
+	/**
+	 * Removes an object from all partitions it belongs to
+	 * 
+	 * @param object
+	 *            the object
+	 */
+	public void remove(WorldObject object) {
+		Preconditions.checkNotNull(object, "object");
+		for (final Class<?> type : types) {
+			if (type.isInstance(object))
+				partitions.get(type).remove(object);
+		}
+	}
+
+	/**
+	 * Locates the partitioned type that contains all objects of
+	 * <tt>type</tt>
+	 * 
+	 * @param type
+	 *            the object type
+	 * @return the partitioned type or <code>null</code> if <tt>type</tt> is
+	 *         not partitioned
+	 */
+	public Class<?> getPartitionType(Class<?> type) {
+		for (final Class<?> partitioned : types) {
+			if (partitioned.isAssignableFrom(type))
+				return partitioned;
+		}
+		return null;
+	}
+
+	/**
+	 * @param type
+	 *            the object type
+	 * @return the partition containing all objects of <tt>type</tt> or
+	 *         <code>null</code> if <tt>type</tt> is not partitioned
+	 */
+	public Set<WorldObject> getPartition(Class<?> type) {
+		final Class<?> partitioned = getPartitionType(type);
+		if (partitioned == null)
+			return null;
+		return partitions.get(partitioned);
+	}
+
+	/**
+	 * Removes all objects from the index
+	 */
+	public void clear() {
+		for (final Set<WorldObject> partition : partitions.values()) {
+			partition.clear();
+		}
+	}
+}
@@ -16,14 +16,23 @@
  */
 package com.l2jserver.service.network;
 
+import java.nio.ByteOrder;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jboss.netty.bootstrap.ServerBootstrap;
+import org.jboss.netty.buffer.HeapChannelBufferFactory;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelFutureListener;
 import org.jboss.netty.channel.ChannelPipelineFactory;
 import org.jboss.netty.channel.ServerChannel;
+import org.jboss.netty.channel.group.ChannelGroup;
+import org.jboss.netty.channel.group.ChannelGroupFuture;
+import org.jboss.netty.channel.group.ChannelGroupFutureListener;
+import org.jboss.netty.channel.group.DefaultChannelGroup;
+import org.jboss.netty.channel.group.DefaultChannelGroupFuture;
 import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
 import org.jboss.netty.logging.InternalLoggerFactory;
 import org.jboss.netty.logging.Slf4JLoggerFactory;
@@ -36,16 +45,19 @@ import com.google.common.base.Preconditions;
 import com.google.inject.Guice;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
+import com.l2jserver.game.net.codec.Lineage2OutboundBatcher;
 import com.l2jserver.model.id.object.CharacterID;
 import com.l2jserver.service.AbstractConfigurableService;
 import com.l2jserver.service.AbstractService.Depends;
 import com.l2jserver.service.core.logging.LoggingService;
+import com.l2jserver.service.core.threading.ScheduledAsyncFuture;
 import com.l2jserver.service.core.threading.ThreadPool;
 import com.l2jserver.service.core.threading.ThreadPoolPriority;
 import com.l2jserver.service.core.threading.ThreadService;
 import com.l2jserver.service.game.world.WorldService;
 import com.l2jserver.service.network.keygen.BlowfishKeygenService;
 import com.l2jserver.service.network.model.Lineage2Client;
+import com.l2jserver.service.network.model.packet.BroadcastPacket;
 import com.l2jserver.service.network.model.packet.ServerPacket;
 import com.l2jserver.util.ThreadPoolUtils;
 import com.l2jserver.util.factory.CollectionFactory;
@@ -94,7 +106,24 @@ public abstract class AbstractNettyNetworkService extends
 	/**
 	 * The client list. This list all active clients in the server
 	 */
-	private Set<Lineage2Client> clients = CollectionFactory.newSet();
+	private Set<Lineage2Client> clients = CollectionFactory.newConcurrentSet();
+	/**
+	 * The channels of all active clients. Closed channels are removed
+	 * automatically.
+	 */
+	private final ChannelGroup channels = new DefaultChannelGroup("clients");
+	/**
+	 * The amount of broadcasted packets successfully written
+	 */
+	private final AtomicLong broadcastsDelivered = new AtomicLong();
+	/**
+	 * The amount of broadcasted packets that could not be written
+	 */
+	private final AtomicLong broadcastsFailed = new AtomicLong();
+	/**
+	 * The task that flushes batched packets
+	 */
+	private ScheduledAsyncFuture flushTask;
 
 	/**
 	 * @param injector
@@ -130,8 +159,34 @@ public abstract class AbstractNettyNetworkService extends
 				ThreadPoolUtils.wrap(bossPool),
 				ThreadPoolUtils.wrap(workerPool), 50));
 
+		// inbound buffers are little-endian so that frames can be sliced
+		// from the cumulation buffer without being copied
+		server.setOption("child.bufferFactory",
+				HeapChannelBufferFactory.getInstance(ByteOrder.LITTLE_ENDIAN));
 		server.setPipelineFactory(createPipelineFactory(injector));
 		channel = (ServerChannel) server.bind(config.getListenAddress());
+
+		final int interval = config.getBatchInterval();
+		if (interval > 0) {
+			flushTask = threadService.async(interval, TimeUnit.MILLISECONDS,
+					interval, new Runnable() {
+						@Override
+						public void run() {
+							flush();
+						}
+					});
+		}
+	}
+
+	/**
+	 * Creates the outbound batcher for a new client pipeline
+	 * 
+	 * @return the batcher or <code>null</code> if batching is disabled
+	 */
+	public Lineage2OutboundBatcher createOutboundBatcher() {
+		if (config.getBatchInterval() <= 0)
+			return null;
+		return new Lineage2OutboundBatcher(config.getBatchSize());
 	}
 	
 	/**
@@ -148,6 +203,7 @@ public abstract class AbstractNettyNetworkService extends
 		log.debug("Registering client: {}", client);
 
 		clients.add(client);
+		channels.add(client.getChannel());
 		client.getChannel().getCloseFuture()
 				.addListener(new ChannelFutureListener() {
 					@Override
@@ -164,6 +220,7 @@ public abstract class AbstractNettyNetworkService extends
 
 		log.debug("Unregistering client: {}", client);
 		clients.remove(client);
+		channels.remove(client.getChannel());
 	}
 
 	@Override
@@ -181,11 +238,65 @@ public abstract class AbstractNettyNetworkService extends
 
 	@Override
 	public void broadcast(ServerPacket packet) {
+		broadcast(packet, false);
+	}
+
+	@Override
+	public void broadcast(final ServerPacket packet, boolean inGame) {
 		Preconditions.checkNotNull(packet, "packet");
 
 		log.debug("Broadcasting {} packet to all connected clients", packet);
 
-		channel.write(packet);
+		// encoded once, each pipeline only encrypts its own copy
+		final ServerPacket shared = (packet instanceof BroadcastPacket ? packet
+				: new BroadcastPacket(packet));
+		// written through each client, so the packet is queued in order with
+		// the other packets written to it
+		final List<ChannelFuture> futures = CollectionFactory.newList();
+		for (final Lineage2Client client : clients) {
+			if (!inGame || client.hasCharacter())
+				futures.add(client.write(shared));
+		}
+		new DefaultChannelGroupFuture(channels, futures).addListener(new ChannelGroupFutureListener() {
+			@Override
+			public void operationComplete(ChannelGroupFuture future)
+					throws Exception {
+				int delivered = 0, failed = 0;
+				for (final ChannelFuture f : future) {
+					if (f.isSuccess())
+						delivered++;
+					else
+						failed++;
+				}
+				broadcastsDelivered.addAndGet(delivered);
+				broadcastsFailed.addAndGet(failed);
+				log.debug("Broadcast of {} delivered to {} clients, {} failed",
+						new Object[] { packet, delivered, failed });
+			}
+		});
+	}
+
+	/**
+	 * @return the amount of broadcasted packets successfully written, for all
+	 *         clients
+	 */
+	public long getBroadcastsDelivered() {
+		return broadcastsDelivered.get();
+	}
+
+	/**
+	 * @return the amount of broadcasted packets that could not be written,
+	 *         for all clients
+	 */
+	public long getBroadcastsFailed() {
+		return broadcastsFailed.get();
+	}
+
+	@Override
+	public void flush() {
+		for (final Lineage2Client client : clients) {
+			client.flush();
+		}
 	}
 
 	@Override
@@ -195,6 +306,9 @@ public abstract class AbstractNettyNetworkService extends
 
 	@Override
 	protected void doStop() {
+		if (flushTask != null)
+			flushTask.cancel(false);
+		flushTask = null;
 		try {
 			channel.close().awaitUninterruptibly();
 			server.releaseExternalResources();
@@ -207,5 +321,6 @@ public abstract class AbstractNettyNetworkService extends
 			workerPool = null;
 		}
 		clients.clear();
+		channels.clear();
 	}
 }
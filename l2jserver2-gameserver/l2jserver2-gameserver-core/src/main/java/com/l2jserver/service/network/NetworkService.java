@@ -87,13 +87,31 @@ public interface NetworkService extends Service {
 	Lineage2Client discover(CharacterID character);
 
 	/**
-	 * Broadcast an given <tt>packet</tt> to all clients connected
+	 * Broadcast an given <tt>packet</tt> to all clients connected. The packet
+	 * is encoded only once and must not write any client specific data.
 	 * 
 	 * @param packet
 	 *            the packet
 	 */
 	void broadcast(ServerPacket packet);
 
+	/**
+	 * Broadcast an given <tt>packet</tt> to all clients connected. The packet
+	 * is encoded only once and must not write any client specific data.
+	 * 
+	 * @param packet
+	 *            the packet
+	 * @param inGame
+	 *            if true, only clients with a character in the game world
+	 *            receive the packet
+	 */
+	void broadcast(ServerPacket packet, boolean inGame);
+
+	/**
+	 * Writes all batched packets of every connected client
+	 */
+	void flush();
+
 	/**
 	 * Searches for idle connection and removes them
 	 */
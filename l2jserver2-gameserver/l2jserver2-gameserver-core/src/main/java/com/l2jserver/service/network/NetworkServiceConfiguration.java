@@ -20,7 +20,8 @@ import java.net.InetSocketAddress;
 
 import com.l2jserver.service.ServiceConfiguration;
 import com.l2jserver.service.configuration.Configuration;
-import com.l2jserver.service.configuration.XMLConfigurationService.ConfigurationXPath;
+import com.l2jserver.service.configuration.XMLConfigurationService.ConfigurationXPath;
+import com.l2jserver.service.network.model.packet.UrgentPacket;
 
 /**
  * The network {@link Configuration}
@@ -46,4 +47,46 @@ public interface NetworkServiceConfiguration extends ServiceConfiguration {
 	@ConfigurationPropertySetter
 	@ConfigurationXPath("server/@listen")
 	void setListenAddress(InetSocketAddress addr);
+
+	/**
+	 * Get the interval in which batched outgoing packets are flushed. This
+	 * is the maximum latency added to any packet other than an
+	 * {@link UrgentPacket}, which is always written immediately.
+	 * 
+	 * @return the flush interval in milliseconds, 0 disables batching
+	 */
+	@ConfigurationPropertyGetter(defaultValue = "0")
+	@ConfigurationXPath("batching/@interval")
+	int getBatchInterval();
+
+	/**
+	 * Set the interval in which batched outgoing packets are flushed
+	 * 
+	 * @param interval
+	 *            the flush interval in milliseconds, 0 disables batching
+	 */
+	@ConfigurationPropertySetter
+	@ConfigurationXPath("batching/@interval")
+	void setBatchInterval(int interval);
+
+	/**
+	 * Get the amount of bytes batched for a single client before they are
+	 * flushed, regardless of the flush interval
+	 * 
+	 * @return the batch size in bytes
+	 */
+	@ConfigurationPropertyGetter(defaultValue = "16384")
+	@ConfigurationXPath("batching/@size")
+	int getBatchSize();
+
+	/**
+	 * Set the amount of bytes batched for a single client before they are
+	 * flushed
+	 * 
+	 * @param size
+	 *            the batch size in bytes
+	 */
+	@ConfigurationPropertySetter
+	@ConfigurationXPath("batching/@size")
+	void setBatchSize(int size);
 }
\ No newline at end of file
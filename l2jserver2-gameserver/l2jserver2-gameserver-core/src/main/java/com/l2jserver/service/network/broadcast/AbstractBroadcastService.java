@@ -0,0 +1,794 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.service.network.broadcast;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.l2jserver.game.net.packet.server.SM_ACTOR_ATTACK;
+import com.l2jserver.game.net.packet.server.SM_ACTOR_CHAT;
+import com.l2jserver.game.net.packet.server.SM_ACTOR_DIE;
+import com.l2jserver.game.net.packet.server.SM_ACTOR_MOVE;
+import com.l2jserver.game.net.packet.server.SM_ACTOR_STATUS_UPDATE;
+import com.l2jserver.game.net.packet.server.SM_ACTOR_STATUS_UPDATE.Stat;
+import com.l2jserver.game.net.packet.server.SM_CHAR_INFO;
+import com.l2jserver.game.net.packet.server.SM_CHAR_INFO_BROADCAST;
+import com.l2jserver.game.net.packet.server.SM_CHAR_INVENTORY;
+import com.l2jserver.game.net.packet.server.SM_CHAR_MOVE_TYPE;
+import com.l2jserver.game.net.packet.server.SM_CHAR_SHORTCUT_LIST;
+import com.l2jserver.game.net.packet.server.SM_CHAR_SHORTCUT_REGISTER;
+import com.l2jserver.game.net.packet.server.SM_CHAR_STOP;
+import com.l2jserver.game.net.packet.server.SM_CHAR_TARGET;
+import com.l2jserver.game.net.packet.server.SM_CHAR_TARGET_UNSELECT;
+import com.l2jserver.game.net.packet.server.SM_CHAR_TELEPORT;
+import com.l2jserver.game.net.packet.server.SM_HTML;
+import com.l2jserver.game.net.packet.server.SM_ITEM_GROUND;
+import com.l2jserver.game.net.packet.server.SM_ITEM_PICK;
+import com.l2jserver.game.net.packet.server.SM_NPC_INFO;
+import com.l2jserver.game.net.packet.server.SM_OBJECT_REMOVE;
+import com.l2jserver.model.id.object.CharacterID;
+import com.l2jserver.model.server.ChatMessage;
+import com.l2jserver.model.world.Actor;
+import com.l2jserver.model.world.Item;
+import com.l2jserver.model.world.L2Character;
+import com.l2jserver.model.world.NPC;
+import com.l2jserver.model.world.PositionableObject;
+import com.l2jserver.model.world.WorldObject;
+import com.l2jserver.model.world.actor.event.ActorAttackHitEvent;
+import com.l2jserver.model.world.actor.event.ActorDieEvent;
+import com.l2jserver.model.world.actor.event.ActorTeleportingEvent;
+import com.l2jserver.model.world.actor.event.ActorUnspawnEvent;
+import com.l2jserver.model.world.character.event.CharacterCreateShortcutEvent;
+import com.l2jserver.model.world.character.event.CharacterEnterWorldEvent;
+import com.l2jserver.model.world.character.event.CharacterEvent;
+import com.l2jserver.model.world.character.event.CharacterKnownListUpdateEvent;
+import com.l2jserver.model.world.character.event.CharacterLeaveWorldEvent;
+import com.l2jserver.model.world.character.event.CharacterListener;
+import com.l2jserver.model.world.character.event.CharacterMoveEvent;
+import com.l2jserver.model.world.character.event.CharacterRunningEvent;
+import com.l2jserver.model.world.character.event.CharacterStartMovingEvent;
+import com.l2jserver.model.world.character.event.CharacterStopMoveEvent;
+import com.l2jserver.model.world.character.event.CharacterTargetDeselectedEvent;
+import com.l2jserver.model.world.character.event.CharacterTargetSelectedEvent;
+import com.l2jserver.model.world.character.event.CharacterWalkingEvent;
+import com.l2jserver.model.world.item.ItemCreatedEvent;
+import com.l2jserver.model.world.item.ItemDropEvent;
+import com.l2jserver.model.world.item.ItemPickEvent;
+import com.l2jserver.model.world.item.ItemRemovedEvent;
+import com.l2jserver.model.world.npc.event.NPCSpawnEvent;
+import com.l2jserver.model.world.npc.event.NPCTalkEvent;
+import com.l2jserver.model.world.player.event.PlayerTeleportedEvent;
+import com.l2jserver.model.world.positionable.KnownListUpdate;
+import com.l2jserver.service.AbstractConfigurableService;
+import com.l2jserver.service.AbstractService.Depends;
+import com.l2jserver.service.ServiceStartException;
+import com.l2jserver.service.ServiceStopException;
+import com.l2jserver.service.game.chat.ChatChannel;
+import com.l2jserver.service.game.chat.ChatChannelListener;
+import com.l2jserver.service.game.chat.ChatMessageType;
+import com.l2jserver.service.game.chat.ChatService;
+import com.l2jserver.service.game.world.WorldService;
+import com.l2jserver.service.game.world.event.WorldEvent;
+import com.l2jserver.service.game.world.event.WorldEventDispatcherService;
+import com.l2jserver.service.game.world.event.WorldListener;
+import com.l2jserver.service.network.NetworkService;
+import com.l2jserver.service.network.model.Lineage2Client;
+import com.l2jserver.service.network.model.SystemMessage;
+import com.l2jserver.service.network.model.packet.BroadcastPacket;
+import com.l2jserver.service.network.model.packet.ServerPacket;
+import com.l2jserver.util.factory.CollectionFactory;
+
+/**
+ * Base {@link BroadcastService} implementation shared by all protocol
+ * versions. Events are routed to packets through two {@link BroadcastTable}s:
+ * one for events issued by objects near the character and another for events
+ * issued by the character itself. Protocol versions register their own
+ * handlers, replacing the default ones, or override the packet factory
+ * methods.
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+@Depends({ NetworkService.class, WorldService.class, ChatService.class })
+public abstract class AbstractBroadcastService extends
+		AbstractConfigurableService<BroadcastServiceConfiguration> implements
+		BroadcastService {
+	/**
+	 * The logger
+	 */
+	protected final Logger log = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * The world service
+	 */
+	protected final WorldService worldService;
+	/**
+	 * The {@link ChatService}
+	 */
+	protected final ChatService chatService;
+	/**
+	 * The {@link NetworkService}
+	 */
+	protected final NetworkService networkService;
+	/**
+	 * The world service event dispatcher
+	 */
+	protected final WorldEventDispatcherService eventDispatcher;
+
+	/**
+	 * The handlers for events issued by objects near the character
+	 */
+	private final BroadcastTable neighborTable = new BroadcastTable();
+	/**
+	 * The handlers for events issued by the character itself
+	 */
+	private final BroadcastTable characterTable = new BroadcastTable();
+
+	/**
+	 * The packets being broadcasted for each event or chat message. Each
+	 * packet is encoded only once and its buffer is shared by every recipient.
+	 * Entries are removed once the event is garbage collected. Events are
+	 * compared by identity.
+	 */
+	private final ConcurrentMap<Object, BroadcastPacket> packets = CollectionFactory
+			.newConcurrentWeakMap();
+
+	/**
+	 * Sends announcements to every player in the game world
+	 */
+	private final ChatChannelListener announcementListener = new ChatChannelListener() {
+		@Override
+		public void onMessage(ChatChannel channel, ChatMessage message) {
+			networkService.broadcast(new SM_ACTOR_CHAT(message.getSender()
+					.getObject(), ChatMessageType.ANNOUNCEMENT, message
+					.getMessage()), true);
+		}
+	};
+
+	/**
+	 * @param worldService
+	 *            the world service
+	 * @param chatService
+	 *            the chat service
+	 * @param networkService
+	 *            the network service
+	 * @param eventDispatcher
+	 *            the world service event disptacher
+	 */
+	protected AbstractBroadcastService(WorldService worldService,
+			ChatService chatService, NetworkService networkService,
+			WorldEventDispatcherService eventDispatcher) {
+		super(BroadcastServiceConfiguration.class);
+		this.worldService = worldService;
+		this.chatService = chatService;
+		this.networkService = networkService;
+		this.eventDispatcher = eventDispatcher;
+		registerNeighborHandlers();
+		registerCharacterHandlers();
+	}
+
+	@Override
+	protected void doStart() throws ServiceStartException {
+		chatService.getAnnouncementChannel().addMessageListener(
+				announcementListener);
+	}
+
+	@Override
+	protected void doStop() throws ServiceStopException {
+		chatService.getAnnouncementChannel().removeMessageListener(
+				announcementListener);
+	}
+
+	@Override
+	public void broadcast(final L2Character character) {
+		Preconditions.checkNotNull(character, "character");
+		final Lineage2Client conn = networkService.discover(character.getID());
+		Preconditions.checkNotNull(conn, "conn");
+		final CharacterID id = character.getID();
+
+		log.debug("Registering character broadcast listeners");
+
+		// movement updates are sent less often to distant observers
+		final BroadcastRecipient recipient = new BroadcastRecipient(conn,
+				character, new LevelOfDetail(config.getMoveNearDistance(),
+						config.getMoveFarDistance(), config.getMoveInterval()));
+
+		// event broadcast listener
+		// this listener is subscribed to the area around the character, so
+		// only events issued by nearby objects are dispatched
+		final WorldListener neighborListener = new WorldListener() {
+			@Override
+			public boolean dispatch(WorldEvent e) {
+				log.debug("Broadcast event received: {}", e);
+				neighborTable.handle(recipient, e);
+				// keep listener alive
+				return true;
+			}
+		};
+		// subscribe to the character area -- removed once it leaves the world.
+		// objects are kept in the known list up to the leave range, their
+		// events must reach the character until then
+		final Set<Class<?>> neighborTypes = neighborTable.getEventTypes();
+		eventDispatcher.subscribe(character,
+				worldService.getMaximumLeaveRange(), neighborListener,
+				neighborTypes.toArray(new Class<?>[neighborTypes.size()]));
+		// this listener is bound directly to the character and only receives
+		// the events with a registered handler
+		final WorldListener sendPacketListener = new WorldListener() {
+			@Override
+			public boolean dispatch(WorldEvent e) {
+				log.debug("Broadcast event received: {}", e);
+				characterTable.handle(recipient, e);
+				// keep listener alive
+				return true;
+			}
+		};
+		final Set<Class<?>> types = characterTable.getEventTypes();
+		eventDispatcher.addListener(id, sendPacketListener,
+				types.toArray(new Class<?>[types.size()]));
+	}
+
+	/**
+	 * Registers the handler for events of <tt>type</tt> issued by objects near
+	 * the character, replacing any existing one
+	 * 
+	 * @param <E>
+	 *            the event type
+	 * @param type
+	 *            the event class
+	 * @param handler
+	 *            the handler
+	 */
+	protected <E extends WorldEvent> void registerNeighborHandler(
+			Class<E> type, BroadcastHandler<? super E> handler) {
+		neighborTable.register(type, handler);
+	}
+
+	/**
+	 * Registers the handler for events of <tt>type</tt> issued by the
+	 * character itself, replacing any existing one
+	 * 
+	 * @param <E>
+	 *            the event type
+	 * @param type
+	 *            the event class
+	 * @param handler
+	 *            the handler
+	 */
+	protected <E extends WorldEvent> void registerCharacterHandler(
+			Class<E> type, BroadcastHandler<? super E> handler) {
+		characterTable.register(type, handler);
+	}
+
+	/**
+	 * Registers the default handlers for events issued by nearby objects
+	 */
+	private void registerNeighborHandlers() {
+		final BroadcastHandler<WorldEvent> info = new BroadcastHandler<WorldEvent>() {
+			@Override
+			public void handle(BroadcastRecipient recipient, WorldEvent e) {
+				final PositionableObject object = (PositionableObject) e
+						.getObject();
+				// already sent if the character has seen it since
+				if (!worldService.addKnownObject(recipient.getCharacter(),
+						object))
+					return;
+				broadcast(recipient.getConnection(), e, object);
+			}
+		};
+		registerNeighborHandler(NPCSpawnEvent.class, info);
+		registerNeighborHandler(ItemDropEvent.class, info);
+		registerNeighborHandler(PlayerTeleportedEvent.class, info);
+		registerNeighborHandler(CharacterEnterWorldEvent.class, info);
+
+		registerNeighborHandler(CharacterStartMovingEvent.class,
+				new BroadcastHandler<CharacterStartMovingEvent>() {
+					@Override
+					public void handle(BroadcastRecipient recipient,
+							CharacterStartMovingEvent e) {
+						// always sent, distant clients extrapolate from it
+						recipient.getConnection().write(
+								share(e, new SM_ACTOR_MOVE(e.getCharacter(), e
+										.getPoint().getCoordinate())));
+					}
+				});
+		registerNeighborHandler(CharacterStopMoveEvent.class,
+				new BroadcastHandler<CharacterStopMoveEvent>() {
+					@Override
+					public void handle(BroadcastRecipient recipient,
+							CharacterStopMoveEvent e) {
+						recipient.getConnection().write(
+								share(e, new SM_CHAR_STOP(e.getCharacter())));
+					}
+				});
+		registerNeighborHandler(CharacterMoveEvent.class,
+				new BroadcastHandler<CharacterMoveEvent>() {
+					@Override
+					public void handle(BroadcastRecipient recipient,
+							CharacterMoveEvent e) {
+						if (!recipient.getMoveDetail().accept(
+								recipient.getCharacter(), e.getCharacter()))
+							return;
+						recipient.getConnection().write(
+								share(e, new SM_ACTOR_MOVE(e.getCharacter(), e
+										.getPoint().getCoordinate())));
+					}
+				});
+		registerNeighborHandler(ItemPickEvent.class,
+				new BroadcastHandler<ItemPickEvent>() {
+					@Override
+					public void handle(BroadcastRecipient recipient,
+							ItemPickEvent e) {
+						final Lineage2Client conn = recipient.getConnection();
+						worldService.removeKnownObject(
+								recipient.getCharacter(), e.getItem());
+						conn.write(share(e,
+								new SM_ITEM_PICK(e.getCharacter(), e.getItem())));
+						conn.write(new SM_OBJECT_REMOVE(e.getItem()));
+					}
+				});
+
+		final BroadcastHandler<WorldEvent> remove = new BroadcastHandler<WorldEvent>() {
+			@Override
+			public void handle(BroadcastRecipient recipient, WorldEvent e) {
+				final PositionableObject object = (PositionableObject) e
+						.getObject();
+				// object is now out of sight
+				worldService.removeKnownObject(recipient.getCharacter(), object);
+				recipient.getMoveDetail().remove(object);
+				recipient.getConnection().write(
+						share(e, new SM_OBJECT_REMOVE(object)));
+			}
+		};
+		registerNeighborHandler(ActorTeleportingEvent.class, remove);
+		registerNeighborHandler(CharacterLeaveWorldEvent.class, remove);
+		registerNeighborHandler(ActorUnspawnEvent.class, remove);
+
+		final BroadcastHandler<CharacterEvent> moveType = new BroadcastHandler<CharacterEvent>() {
+			@Override
+			public void handle(BroadcastRecipient recipient, CharacterEvent e) {
+				recipient.getConnection().write(
+						share(e, new SM_CHAR_MOVE_TYPE(e.getCharacter())));
+			}
+		};
+		registerNeighborHandler(CharacterWalkingEvent.class, moveType);
+		registerNeighborHandler(CharacterRunningEvent.class, moveType);
+
+		registerNeighborHandler(ActorDieEvent.class,
+				new BroadcastHandler<ActorDieEvent>() {
+					@Override
+					public void handle(BroadcastRecipient recipient,
+							ActorDieEvent e) {
+						recipient.getConnection().write(
+								share(e, new SM_ACTOR_DIE(e.getActor())));
+					}
+				});
+	}
+
+	/**
+	 * Registers the default handlers for events issued by the character
+	 */
+	private void registerCharacterHandlers() {
+		registerCharacterHandler(CharacterMoveEvent.class,
+				new BroadcastHandler<CharacterMoveEvent>() {
+					@Override
+					public void handle(BroadcastRecipient recipient,
+							CharacterMoveEvent e) {
+						// process update known list
+						broadcastUpdate(recipient);
+					}
+				});
+		registerCharacterHandler(CharacterKnownListUpdateEvent.class,
+				new BroadcastHandler<CharacterKnownListUpdateEvent>() {
+					@Override
+					public void handle(BroadcastRecipient recipient,
+							CharacterKnownListUpdateEvent e) {
+						final Lineage2Client conn = recipient.getConnection();
+						for (final PositionableObject o : e.getUpdate()
+								.getEntered()) {
+							broadcast(conn, o);
+						}
+						for (final PositionableObject o : e.getUpdate()
+								.getLeft()) {
+							recipient.getMoveDetail().remove(o);
+							conn.write(new SM_OBJECT_REMOVE(o));
+						}
+					}
+				});
+		registerCharacterHandler(CharacterEnterWorldEvent.class,
+				new BroadcastHandler<CharacterEnterWorldEvent>() {
+					@Override
+					public void handle(BroadcastRecipient recipient,
+							CharacterEnterWorldEvent e) {
+						clientEnterWorld(recipient, e);
+					}
+				});
+		registerCharacterHandler(CharacterStartMovingEvent.class,
+				new BroadcastHandler<CharacterStartMovingEvent>() {
+					@Override
+					public void handle(BroadcastRecipient recipient,
+							CharacterStartMovingEvent e) {
+						recipient.getConnection().write(
+								new SM_ACTOR_MOVE(e.getCharacter(), e
+										.getPoint().getCoordinate()));
+					}
+				});
+		registerCharacterHandler(CharacterTargetSelectedEvent.class,
+				new BroadcastHandler<CharacterTargetSelectedEvent>() {
+					@Override
+					public void handle(BroadcastRecipient recipient,
+							CharacterTargetSelectedEvent e) {
+						final Lineage2Client conn = recipient.getConnection();
+						final Actor target = e.getTarget();
+						final L2Character character = e.getCharacter();
+						conn.write(new SM_CHAR_TARGET(target, character
+								.getLevel() - target.getLevel()));
+						if (target instanceof NPC) {
+							final NPC mob = (NPC) target;
+							conn.write(new SM_ACTOR_STATUS_UPDATE(mob).add(
+									Stat.MAX_HP,
+									(int) mob.getTemplate().getInfo()
+											.getStats().getHp().getMax()).add(
+									Stat.HP, (int) mob.getHP()));
+						}
+					}
+				});
+		registerCharacterHandler(CharacterTargetDeselectedEvent.class,
+				new BroadcastHandler<CharacterTargetDeselectedEvent>() {
+					@Override
+					public void handle(BroadcastRecipient recipient,
+							CharacterTargetDeselectedEvent e) {
+						recipient.getConnection().write(
+								new SM_CHAR_TARGET_UNSELECT(e.getCharacter()));
+					}
+				});
+		registerCharacterHandler(PlayerTeleportedEvent.class,
+				new BroadcastHandler<PlayerTeleportedEvent>() {
+					@Override
+					public void handle(BroadcastRecipient recipient,
+							PlayerTeleportedEvent e) {
+						writeCharacterInfo(recipient.getConnection(),
+								recipient.getCharacter());
+						broadcastAll(recipient);
+					}
+				});
+		registerCharacterHandler(ActorAttackHitEvent.class,
+				new BroadcastHandler<ActorAttackHitEvent>() {
+					@Override
+					public void handle(BroadcastRecipient recipient,
+							ActorAttackHitEvent e) {
+						final Lineage2Client conn = recipient.getConnection();
+						conn.write(new SM_ACTOR_ATTACK(e.getHit()));
+						conn.sendSystemMessage(SystemMessage.YOU_DID_S1_DMG,
+								(int) e.getHit().getDamage());
+					}
+				});
+		final BroadcastHandler<CharacterEvent> moveType = new BroadcastHandler<CharacterEvent>() {
+			@Override
+			public void handle(BroadcastRecipient recipient, CharacterEvent e) {
+				recipient.getConnection().write(
+						new SM_CHAR_MOVE_TYPE(e.getCharacter()));
+			}
+		};
+		registerCharacterHandler(CharacterWalkingEvent.class, moveType);
+		registerCharacterHandler(CharacterRunningEvent.class, moveType);
+		registerCharacterHandler(ActorTeleportingEvent.class,
+				new BroadcastHandler<ActorTeleportingEvent>() {
+					@Override
+					public void handle(BroadcastRecipient recipient,
+							ActorTeleportingEvent e) {
+						recipient.getConnection().write(
+								new SM_CHAR_TELEPORT((L2Character) e
+										.getActor(), e.getPoint()));
+					}
+				});
+		registerCharacterHandler(NPCTalkEvent.class,
+				new BroadcastHandler<NPCTalkEvent>() {
+					@Override
+					public void handle(BroadcastRecipient recipient,
+							NPCTalkEvent e) {
+						final Lineage2Client conn = recipient.getConnection();
+						conn.write(new SM_HTML(e.getNPC(), e.getHtml()));
+						conn.sendActionFailed();
+					}
+				});
+		registerCharacterHandler(CharacterCreateShortcutEvent.class,
+				new BroadcastHandler<CharacterCreateShortcutEvent>() {
+					@Override
+					public void handle(BroadcastRecipient recipient,
+							CharacterCreateShortcutEvent e) {
+						recipient.getConnection().write(
+								new SM_CHAR_SHORTCUT_REGISTER(e.getShortcut()));
+					}
+				});
+		registerCharacterHandler(ItemCreatedEvent.class,
+				new BroadcastHandler<ItemCreatedEvent>() {
+					@Override
+					public void handle(BroadcastRecipient recipient,
+							ItemCreatedEvent e) {
+						final Lineage2Client conn = recipient.getConnection();
+						if (e.getItem().getCount() == 1) {
+							conn.sendSystemMessage(
+									SystemMessage.C1_OBTAINED_S2,
+									e.getCharacter(), e.getItem());
+						} else {
+							conn.sendSystemMessage(
+									SystemMessage.C1_OBTAINED_S3_S2,
+									e.getCharacter(), e.getItem(), e
+											.getItem().getCount());
+						}
+					}
+				});
+		registerCharacterHandler(ItemRemovedEvent.class,
+				new BroadcastHandler<ItemRemovedEvent>() {
+					@Override
+					public void handle(BroadcastRecipient recipient,
+							ItemRemovedEvent e) {
+						final Lineage2Client conn = recipient.getConnection();
+						if (e.getItem().getCount() == 1) {
+							conn.sendSystemMessage(
+									SystemMessage.S1_DISAPPEARED, e.getItem());
+						} else {
+							conn.sendSystemMessage(
+									SystemMessage.S2_S1_DISAPPEARED,
+									e.getItem(), e.getItem().getCount());
+						}
+					}
+				});
+	}
+
+	/**
+	 * Writes the packets that describe the character to its own client.
+	 * Protocol versions that have additional information packets should
+	 * override this method.
+	 * 
+	 * @param conn
+	 *            the connection
+	 * @param character
+	 *            the character
+	 */
+	protected void writeCharacterInfo(Lineage2Client conn,
+			L2Character character) {
+		conn.write(new SM_CHAR_INFO(character));
+	}
+
+	/**
+	 * Creates the packet that describes an object to other clients
+	 * 
+	 * @param o
+	 *            the object
+	 * @return the packet or <code>null</code> if the object is not visible
+	 */
+	protected ServerPacket createInfo(WorldObject o) {
+		if (o instanceof NPC) {
+			return new SM_NPC_INFO((NPC) o);
+		} else if (o instanceof L2Character) {
+			return new SM_CHAR_INFO_BROADCAST((L2Character) o);
+		} else if (o instanceof Item) {
+			return new SM_ITEM_GROUND((Item) o);
+		}
+		return null;
+	}
+
+	/**
+	 * Broadcast all nearby objects to this client. Nearby players that now
+	 * see (or no longer see) the character are notified as well.
+	 * 
+	 * @param recipient
+	 *            the recipient
+	 */
+	protected void broadcastAll(BroadcastRecipient recipient) {
+		final Lineage2Client conn = recipient.getConnection();
+		final L2Character character = recipient.getCharacter();
+		log.debug("Broadcasting all near objects to {}", character);
+		final KnownListUpdate update = worldService.updateKnownList(character);
+		for (final WorldObject o : character.getKnownList()) {
+			broadcast(conn, o);
+		}
+		for (final PositionableObject o : update.getLeft()) {
+			recipient.getMoveDetail().remove(o);
+		}
+		notifyObservers(character, update);
+	}
+
+	/**
+	 * Updates the character known list and broadcasts only the differences:
+	 * objects that came into sight are sent to the client and objects that
+	 * went out of sight are removed from it. Nearby players that now see (or
+	 * no longer see) the character are notified as well.
+	 * 
+	 * @param recipient
+	 *            the recipient
+	 */
+	private void broadcastUpdate(BroadcastRecipient recipient) {
+		final Lineage2Client conn = recipient.getConnection();
+		final L2Character character = recipient.getCharacter();
+		final KnownListUpdate update = worldService.updateKnownList(character);
+		if (update.isEmpty())
+			return;
+		log.debug("Broadcasting known list changes to {}", character);
+		for (final PositionableObject o : update.getEntered()) {
+			broadcast(conn, o);
+		}
+		for (final PositionableObject o : update.getLeft()) {
+			recipient.getMoveDetail().remove(o);
+			conn.write(new SM_OBJECT_REMOVE(o));
+		}
+		notifyObservers(character, update);
+	}
+
+	/**
+	 * Notifies the players that now see (or no longer see) the character.
+	 * Their clients are written to by their own listeners, in order with all
+	 * other packets sent to them.
+	 * 
+	 * @param character
+	 *            the character
+	 * @param update
+	 *            the character known list changes
+	 */
+	private void notifyObservers(L2Character character, KnownListUpdate update) {
+		final Collection<PositionableObject> self = Collections
+				.<PositionableObject> singleton(character);
+		final Collection<PositionableObject> none = Collections.emptyList();
+		for (final PositionableObject o : update.getEntered()) {
+			if (o instanceof L2Character)
+				eventDispatcher.post(new CharacterKnownListUpdateEvent(
+						(L2Character) o, new KnownListUpdate(self, none)));
+		}
+		for (final PositionableObject o : update.getLeft()) {
+			if (o instanceof L2Character)
+				eventDispatcher.post(new CharacterKnownListUpdateEvent(
+						(L2Character) o, new KnownListUpdate(none, self)));
+		}
+	}
+
+	/**
+	 * Broadcast an object to this client
+	 * 
+	 * @param conn
+	 *            the connection
+	 * @param o
+	 *            the object to be broadcasted
+	 */
+	protected void broadcast(Lineage2Client conn, WorldObject o) {
+		log.debug("Broadcasting {}  to {}", o, conn);
+		final ServerPacket packet = createInfo(o);
+		if (packet != null)
+			conn.write(packet);
+	}
+
+	/**
+	 * Broadcast an object to this client, sharing the encoded packet with
+	 * all other clients that receive the same event
+	 * 
+	 * @param conn
+	 *            the connection
+	 * @param e
+	 *            the event that caused the broadcast
+	 * @param o
+	 *            the object to be broadcasted
+	 */
+	protected void broadcast(Lineage2Client conn, WorldEvent e,
+			WorldObject o) {
+		log.debug("Broadcasting {}  to {}", o, conn);
+		final ServerPacket packet = createInfo(o);
+		if (packet != null)
+			conn.write(share(e, packet));
+	}
+
+	/**
+	 * Shares the packet sent in response to <tt>key</tt> among all its
+	 * recipients. The first recipient packet is encoded once and reused by
+	 * all others. Only packets that do not write recipient specific data can
+	 * be shared.
+	 * 
+	 * @param key
+	 *            the event or message being broadcasted
+	 * @param packet
+	 *            the packet
+	 * @return the shared packet
+	 */
+	protected ServerPacket share(Object key, ServerPacket packet) {
+		BroadcastPacket shared = packets.get(key);
+		if (shared == null) {
+			final BroadcastPacket created = new BroadcastPacket(packet);
+			shared = packets.putIfAbsent(key, created);
+			if (shared == null)
+				return created;
+		}
+		// each key shares a single packet, other packets are encoded for
+		// each recipient
+		if (shared.getPacket().getClass() != packet.getClass())
+			return packet;
+		return shared;
+	}
+
+	/**
+	 * Sends required packets for a client to enter the game virtual world
+	 * 
+	 * @param recipient
+	 *            the recipient
+	 * @param e
+	 *            the event
+	 */
+	private void clientEnterWorld(BroadcastRecipient recipient,
+			CharacterEnterWorldEvent e) {
+		final Lineage2Client conn = recipient.getConnection();
+		final L2Character character = e.getCharacter();
+		final CharacterID id = character.getID();
+
+		// chat listener
+		final ChatChannelListener globalChatListener = new ChatChannelListener() {
+			@Override
+			public void onMessage(ChatChannel channel, ChatMessage message) {
+				conn.write(share(message, new SM_ACTOR_CHAT(message
+						.getSender().getObject(), ChatMessageType.ALL, message
+						.getMessage())));
+			}
+		};
+		final ChatChannelListener tradeChatListener = new ChatChannelListener() {
+			@Override
+			public void onMessage(ChatChannel channel, ChatMessage message) {
+				conn.write(share(message, new SM_ACTOR_CHAT(message
+						.getSender().getObject(), ChatMessageType.TRADE,
+						message.getMessage())));
+			}
+		};
+
+		// leave world event -- no other event will reach this listener
+		eventDispatcher.addListener(id, new CharacterListener() {
+			@Override
+			protected boolean dispatch(CharacterEvent e) {
+				log.debug(
+						"Character {} is leaving world, removing chat listeners",
+						character);
+
+				// remove chat listeners
+				chatService.getGlobalChannel().removeMessageListener(
+						globalChatListener);
+				chatService.getTradeChannel().removeMessageListener(
+						tradeChatListener);
+
+				// we can kill this listener now
+				return false;
+			}
+		}, CharacterLeaveWorldEvent.class);
+
+		// register global chat listener
+		chatService.getGlobalChannel().addMessageListener(globalChatListener);
+		chatService.getTradeChannel().addMessageListener(tradeChatListener);
+
+		log.debug("Sending greeting message to client");
+		conn.sendSystemMessage(SystemMessage.WELCOME_TO_LINEAGE);
+		conn.sendMessage("This an an development version for l2jserver 2.0");
+		conn.sendMessage("Please note that many of the features are not yet implemented.");
+
+		// send this user information
+		log.debug("Sending character information packets");
+		writeCharacterInfo(conn, e.getCharacter());
+		conn.write(new SM_CHAR_INVENTORY(e.getCharacter().getInventory()));
+		conn.write(new SM_CHAR_SHORTCUT_LIST(e.getCharacter().getShortcuts()));
+
+		broadcastAll(recipient);
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.service.network.broadcast;
+
+import com.l2jserver.service.game.world.event.WorldEvent;
+
+/**
+ * Converts an {@link WorldEvent} into the packets sent to a single client
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ * @param <E>
+ *            the event type
+ * @see BroadcastTable
+ */
+public interface BroadcastHandler<E extends WorldEvent> {
+	/**
+	 * Writes the packets for <tt>event</tt> to the recipient client
+	 * 
+	 * @param recipient
+	 *            the recipient
+	 * @param event
+	 *            the event
+	 */
+	void handle(BroadcastRecipient recipient, E event);
+}
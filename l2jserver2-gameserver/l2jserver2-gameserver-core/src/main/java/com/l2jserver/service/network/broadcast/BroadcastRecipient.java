@@ -0,0 +1,76 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.service.network.broadcast;
+
+import com.l2jserver.model.world.L2Character;
+import com.l2jserver.service.network.model.Lineage2Client;
+
+/**
+ * A client receiving broadcasts and its per-client broadcast state
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public class BroadcastRecipient {
+	/**
+	 * The client connection
+	 */
+	private final Lineage2Client connection;
+	/**
+	 * The client character
+	 */
+	private final L2Character character;
+	/**
+	 * The movement update level of detail
+	 */
+	private final LevelOfDetail moveDetail;
+
+	/**
+	 * @param connection
+	 *            the client connection
+	 * @param character
+	 *            the client character
+	 * @param moveDetail
+	 *            the movement update level of detail
+	 */
+	public BroadcastRecipient(Lineage2Client connection,
+			L2Character character, LevelOfDetail moveDetail) {
+		this.connection = connection;
+		this.character = character;
+		this.moveDetail = moveDetail;
+	}
+
+	/**
+	 * @return the client connection
+	 */
+	public Lineage2Client getConnection() {
+		return connection;
+	}
+
+	/**
+	 * @return the client character
+	 */
+	public L2Character getCharacter() {
+		return character;
+	}
+
+	/**
+	 * @return the movement update level of detail
+	 */
+	public LevelOfDetail getMoveDetail() {
+		return moveDetail;
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.service.network.broadcast;
+
+import com.l2jserver.service.ServiceConfiguration;
+import com.l2jserver.service.configuration.XMLConfigurationService.ConfigurationXPath;
+
+/**
+ * Configuration interface for {@link BroadcastService}
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public interface BroadcastServiceConfiguration extends ServiceConfiguration {
+	/**
+	 * @return the distance in which observers receive every movement update
+	 */
+	@ConfigurationPropertyGetter(defaultValue = "600")
+	@ConfigurationXPath("level-of-detail/move/@near")
+	int getMoveNearDistance();
+
+	/**
+	 * @param distance
+	 *            the distance in which observers receive every movement
+	 *            update
+	 */
+	@ConfigurationPropertySetter
+	@ConfigurationXPath("level-of-detail/move/@near")
+	void setMoveNearDistance(int distance);
+
+	/**
+	 * @return the distance after which observers only receive start and stop
+	 *         movement packets
+	 */
+	@ConfigurationPropertyGetter(defaultValue = "1400")
+	@ConfigurationXPath("level-of-detail/move/@far")
+	int getMoveFarDistance();
+
+	/**
+	 * @param distance
+	 *            the distance after which observers only receive start and
+	 *            stop movement packets
+	 */
+	@ConfigurationPropertySetter
+	@ConfigurationXPath("level-of-detail/move/@far")
+	void setMoveFarDistance(int distance);
+
+	/**
+	 * @return the minimum interval between movement updates sent to
+	 *         observers between the near and far distances, in milliseconds
+	 */
+	@ConfigurationPropertyGetter(defaultValue = "500")
+	@ConfigurationXPath("level-of-detail/move/@interval")
+	int getMoveInterval();
+
+	/**
+	 * @param interval
+	 *            the minimum interval between movement updates sent to
+	 *            observers between the near and far distances, in
+	 *            milliseconds
+	 */
+	@ConfigurationPropertySetter
+	@ConfigurationXPath("level-of-detail/move/@interval")
+	void setMoveInterval(int interval);
+}
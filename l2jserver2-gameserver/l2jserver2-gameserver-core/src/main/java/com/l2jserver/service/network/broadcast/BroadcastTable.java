@@ -0,0 +1,127 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.service.network.broadcast;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+import com.l2jserver.service.game.world.event.WorldEvent;
+import com.l2jserver.util.factory.CollectionFactory;
+
+/**
+ * Maps event classes to their {@link BroadcastHandler}. An event is handled by
+ * the handler registered for its class or, if none, for the closest
+ * superclass or interface. The resolved handler is cached for each event
+ * class, so routing an event is a single map lookup.
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public class BroadcastTable {
+	/**
+	 * Marks event classes without an handler
+	 */
+	private static final BroadcastHandler<WorldEvent> NONE = new BroadcastHandler<WorldEvent>() {
+		@Override
+		public void handle(BroadcastRecipient recipient, WorldEvent event) {
+		}
+	};
+
+	/**
+	 * The registered handlers
+	 */
+	private final Map<Class<?>, BroadcastHandler<?>> handlers = CollectionFactory
+			.newConcurrentMap();
+	/**
+	 * The resolved handler for each event class seen so far
+	 */
+	private final Map<Class<?>, BroadcastHandler<?>> resolved = CollectionFactory
+			.newConcurrentMap();
+
+	/**
+	 * Registers the handler for <tt>type</tt>, replacing any existing one
+	 * 
+	 * @param <E>
+	 *            the event type
+	 * @param type
+	 *            the event class
+	 * @param handler
+	 *            the handler
+	 */
+	public <E extends WorldEvent> void register(Class<E> type,
+			BroadcastHandler<? super E> handler) {
+		Preconditions.checkNotNull(type, "type");
+		Preconditions.checkNotNull(handler, "handler");
+		handlers.put(type, handler);
+		resolved.clear();
+	}
+
+	/**
+	 * Handles <tt>event</tt> for the given recipient
+	 * 
+	 * @param recipient
+	 *            the recipient
+	 * @param event
+	 *            the event
+	 * @return true if an handler was found
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean handle(BroadcastRecipient recipient, WorldEvent event) {
+		final Class<?> type = event.getClass();
+		BroadcastHandler<?> handler = resolved.get(type);
+		if (handler == null) {
+			handler = resolve(type);
+			if (handler == null)
+				handler = NONE;
+			resolved.put(type, handler);
+		}
+		if (handler == NONE)
+			return false;
+		((BroadcastHandler<WorldEvent>) handler).handle(recipient, event);
+		return true;
+	}
+
+	/**
+	 * @return the event classes with a registered handler
+	 */
+	public Set<Class<?>> getEventTypes() {
+		return Collections.unmodifiableSet(handlers.keySet());
+	}
+
+	/**
+	 * Looks for the handler of <tt>type</tt> or its closest supertype
+	 * 
+	 * @param type
+	 *            the event class
+	 * @return the handler or <code>null</code>
+	 */
+	private BroadcastHandler<?> resolve(Class<?> type) {
+		if (type == null)
+			return null;
+		BroadcastHandler<?> handler = handlers.get(type);
+		if (handler != null)
+			return handler;
+		if ((handler = resolve(type.getSuperclass())) != null)
+			return handler;
+		for (final Class<?> iface : type.getInterfaces()) {
+			if ((handler = resolve(iface)) != null)
+				return handler;
+		}
+		return null;
+	}
+}
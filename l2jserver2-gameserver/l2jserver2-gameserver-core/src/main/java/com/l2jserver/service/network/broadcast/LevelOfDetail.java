@@ -0,0 +1,120 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.service.network.broadcast;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+import com.l2jserver.model.id.ObjectID;
+import com.l2jserver.model.world.PositionableObject;
+import com.l2jserver.util.factory.CollectionFactory;
+
+/**
+ * Scales the rate of frequent updates, such as movement, by the distance
+ * between the observer and the updated object. Each observer has its own
+ * instance.
+ * <ul>
+ * <li>objects closer than the <b>near</b> distance have every update sent;</li>
+ * <li>objects between the <b>near</b> and <b>far</b> distances have at most
+ * one update sent each <b>interval</b>;</li>
+ * <li>objects farther than the <b>far</b> distance have no update sent, the
+ * client extrapolates them from the start and stop packets.</li>
+ * </ul>
+ * Only movement updates are scaled. The other broadcast packets carry state
+ * changes, such as the move type or a death, that the client cannot
+ * extrapolate, so they are always sent.
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public class LevelOfDetail {
+	/**
+	 * The squared near distance
+	 */
+	private final long near;
+	/**
+	 * The squared far distance
+	 */
+	private final long far;
+	/**
+	 * The minimum interval between updates, in nanoseconds
+	 */
+	private final long interval;
+	/**
+	 * The time of the last update sent for each object in the mid range
+	 */
+	private final Map<ObjectID<?>, Long> sent = CollectionFactory
+			.newConcurrentMap();
+
+	/**
+	 * @param near
+	 *            the distance in which every update is sent
+	 * @param far
+	 *            the distance after which no update is sent
+	 * @param interval
+	 *            the minimum interval between updates in the mid range, in
+	 *            milliseconds
+	 */
+	public LevelOfDetail(int near, int far, long interval) {
+		Preconditions.checkArgument(near <= far, "near > far");
+		this.near = (long) near * near;
+		this.far = (long) far * far;
+		this.interval = TimeUnit.MILLISECONDS.toNanos(interval);
+	}
+
+	/**
+	 * Checks whether an update of <tt>object</tt> should be sent to
+	 * <tt>observer</tt>
+	 * 
+	 * @param observer
+	 *            the observer
+	 * @param object
+	 *            the updated object
+	 * @return true if the update should be sent
+	 */
+	public boolean accept(PositionableObject observer, PositionableObject object) {
+		if (observer.getPoint() == null || object.getPoint() == null)
+			return true;
+		final long distance = (long) observer.getPoint().getCoordinate()
+				.getDistanceSquared(object.getPoint().getCoordinate());
+		if (distance <= near) {
+			sent.remove(object.getID());
+			return true;
+		}
+		if (distance > far) {
+			sent.remove(object.getID());
+			return false;
+		}
+		final long now = System.nanoTime();
+		final Long last = sent.get(object.getID());
+		if (last != null && now - last < interval)
+			return false;
+		sent.put(object.getID(), now);
+		return true;
+	}
+
+	/**
+	 * Forgets the state of <tt>object</tt>. Must be called once the object
+	 * goes out of sight.
+	 * 
+	 * @param object
+	 *            the object
+	 */
+	public void remove(PositionableObject object) {
+		sent.remove(object.getID());
+	}
+}
@@ -159,6 +159,13 @@ public interface Lineage2Client {
 	 */
 	ChannelFuture write(ServerPacket packet);
 
+	/**
+	 * Writes all packets batched for this client. Batched packets are
+	 * flushed periodically by the network service, this method should only
+	 * be used when an packet must be sent immediately.
+	 */
+	void flush();
+
 	/**
 	 * Sends a string message to this client
 	 * 
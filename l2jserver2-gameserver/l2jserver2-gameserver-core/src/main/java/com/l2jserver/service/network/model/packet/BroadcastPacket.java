@@ -0,0 +1,109 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.service.network.model.packet;
+
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+import com.google.common.base.Preconditions;
+import com.l2jserver.service.network.model.Lineage2Client;
+import com.l2jserver.service.network.model.ProtocolVersion;
+
+/**
+ * An {@link ServerPacket} that is sent to several clients at once. The
+ * wrapped packet is serialized only once for each {@link ProtocolVersion}
+ * and every recipient receives a read-only view of the same buffer, thus the
+ * wrapped packet must not write any client specific data other than checking
+ * the protocol version.
+ * <p>
+ * Encrypters must not modify the shared buffer: encrypted data must be
+ * written to a new buffer owned by the connection.
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public class BroadcastPacket implements ServerPacket {
+	/**
+	 * The wrapped packet
+	 */
+	private final ServerPacket packet;
+	/**
+	 * The encoded packet for each {@link ProtocolVersion}. The last slot is
+	 * used for clients with an unknown protocol version.
+	 */
+	private final AtomicReferenceArray<ChannelBuffer> buffers = new AtomicReferenceArray<ChannelBuffer>(
+			ProtocolVersion.values().length + 1);
+
+	/**
+	 * @param packet
+	 *            the packet to be broadcasted
+	 */
+	public BroadcastPacket(ServerPacket packet) {
+		Preconditions.checkNotNull(packet, "packet");
+		this.packet = packet;
+	}
+
+	/**
+	 * Encodes the packet for the given client. The packet is serialized only
+	 * once for each protocol version, other calls return a new read-only
+	 * view of the same buffer without locking.
+	 * 
+	 * @param client
+	 *            the client
+	 * @return the encoded packet, including the frame header
+	 */
+	public ChannelBuffer encode(Lineage2Client client) {
+		final ProtocolVersion version = client.getVersion();
+		final int index = (version == null ? buffers.length() - 1 : version
+				.ordinal());
+		ChannelBuffer buffer = buffers.get(index);
+		if (buffer == null) {
+			synchronized (buffers) {
+				buffer = buffers.get(index);
+				if (buffer == null) {
+					buffer = ChannelBuffers.dynamicBuffer(
+							ByteOrder.LITTLE_ENDIAN, 10);
+					buffer.writeShort(0); // wrap 2 bytes for packet length
+					buffer.writeByte(packet.getOpcode()); // packet opcode
+					packet.write(client, buffer);
+					buffer.setShort(0, buffer.readableBytes());
+					buffers.set(index, buffer);
+				}
+			}
+		}
+		return ChannelBuffers.unmodifiableBuffer(buffer);
+	}
+
+	/**
+	 * @return the wrapped packet
+	 */
+	public ServerPacket getPacket() {
+		return packet;
+	}
+
+	@Override
+	public void write(Lineage2Client client, ChannelBuffer buffer) {
+		packet.write(client, buffer);
+	}
+
+	@Override
+	public int getOpcode() {
+		return packet.getOpcode();
+	}
+}
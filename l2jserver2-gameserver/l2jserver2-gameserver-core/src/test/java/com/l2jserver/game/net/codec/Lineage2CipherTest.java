@@ -0,0 +1,156 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.game.net.codec;
+
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import junit.framework.Assert;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.junit.Test;
+
+import com.l2jserver.service.network.model.Lineage2CryptographyKey;
+
+/**
+ * Known-answer tests for {@link Lineage2Cipher}
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public class Lineage2CipherTest {
+	/**
+	 * The initial key
+	 */
+	private static final byte[] KEY = { (byte) 0x6b, (byte) 0x60,
+			(byte) 0xcb, (byte) 0x5b, (byte) 0x82, (byte) 0xce, (byte) 0x90,
+			(byte) 0xb1, (byte) 0xc8, (byte) 0x27, (byte) 0x93, (byte) 0x01,
+			(byte) 0xa1, (byte) 0x6c, (byte) 0x31, (byte) 0x97 };
+	/**
+	 * The first plain packet
+	 */
+	private static final byte[] PLAIN1 = { (byte) 0x0e, (byte) 0x11,
+			(byte) 0x01, (byte) 0x00, (byte) 0x00 };
+	/**
+	 * The first packet, encrypted with {@link #KEY}
+	 */
+	private static final byte[] CIPHER1 = { (byte) 0x65, (byte) 0x14,
+			(byte) 0xde, (byte) 0x85, (byte) 0x07 };
+	/**
+	 * The second plain packet
+	 */
+	private static final byte[] PLAIN2 = { (byte) 0x20, (byte) 0x21,
+			(byte) 0x22, (byte) 0x23, (byte) 0x24, (byte) 0x25, (byte) 0x26,
+			(byte) 0x27, (byte) 0x28, (byte) 0x29, (byte) 0x2a, (byte) 0x2b,
+			(byte) 0x2c, (byte) 0x2d, (byte) 0x2e, (byte) 0x2f, (byte) 0x30,
+			(byte) 0x31, (byte) 0x32 };
+	/**
+	 * The second packet, encrypted with the key updated by the first one
+	 */
+	private static final byte[] CIPHER2 = { (byte) 0x4b, (byte) 0x0a,
+			(byte) 0xe3, (byte) 0x9b, (byte) 0x3d, (byte) 0xd6, (byte) 0x60,
+			(byte) 0xf6, (byte) 0x13, (byte) 0x1d, (byte) 0xa4, (byte) 0x8e,
+			(byte) 0x03, (byte) 0x42, (byte) 0x5d, (byte) 0xe5, (byte) 0xbe,
+			(byte) 0xef, (byte) 0x16 };
+
+	/**
+	 * Tests encryption of two consecutive packets
+	 */
+	@Test
+	public void testEncrypt() {
+		final Lineage2CryptographyKey key = key();
+		Assert.assertTrue(Arrays.equals(CIPHER1, encrypt(key, PLAIN1)));
+		Assert.assertTrue(Arrays.equals(CIPHER2, encrypt(key, PLAIN2)));
+		Assert.assertEquals((byte) 0xe0, key.key[8]);
+	}
+
+	/**
+	 * Tests decryption of two consecutive packets
+	 */
+	@Test
+	public void testDecrypt() {
+		final Lineage2CryptographyKey key = key();
+		Assert.assertTrue(Arrays.equals(PLAIN1, decrypt(key, CIPHER1)));
+		Assert.assertTrue(Arrays.equals(PLAIN2, decrypt(key, CIPHER2)));
+		Assert.assertEquals((byte) 0xe0, key.key[8]);
+	}
+
+	/**
+	 * Tests buffers without an accessible array and distinct source/target
+	 * buffers
+	 */
+	@Test
+	public void testBuffers() {
+		final Lineage2CryptographyKey key = key();
+		final ChannelBuffer source = ChannelBuffers
+				.unmodifiableBuffer(ChannelBuffers.wrappedBuffer(PLAIN1));
+		final ChannelBuffer target = ChannelBuffers.directBuffer(
+				ByteOrder.LITTLE_ENDIAN, PLAIN1.length);
+		Lineage2Cipher.encrypt(key, source, 0, target, 0, PLAIN1.length);
+		Assert.assertTrue(Arrays.equals(CIPHER1, bytes(target)));
+
+		final Lineage2CryptographyKey other = key();
+		Lineage2Cipher.decrypt(other, target, 0, PLAIN1.length);
+		Assert.assertTrue(Arrays.equals(PLAIN1, bytes(target)));
+	}
+
+	/**
+	 * @return a copy of {@link #KEY}
+	 */
+	private static Lineage2CryptographyKey key() {
+		return new Lineage2CryptographyKey(Arrays.copyOf(KEY, KEY.length));
+	}
+
+	/**
+	 * @param key
+	 *            the key
+	 * @param data
+	 *            the plain data
+	 * @return the encrypted data
+	 */
+	private static byte[] encrypt(Lineage2CryptographyKey key, byte[] data) {
+		final ChannelBuffer buffer = ChannelBuffers.wrappedBuffer(
+				ByteOrder.LITTLE_ENDIAN, Arrays.copyOf(data, data.length));
+		Lineage2Cipher.encrypt(key, buffer, 0, buffer, 0, data.length);
+		return bytes(buffer);
+	}
+
+	/**
+	 * @param key
+	 *            the key
+	 * @param data
+	 *            the encrypted data
+	 * @return the plain data
+	 */
+	private static byte[] decrypt(Lineage2CryptographyKey key, byte[] data) {
+		final ChannelBuffer buffer = ChannelBuffers.wrappedBuffer(
+				ByteOrder.LITTLE_ENDIAN, Arrays.copyOf(data, data.length));
+		Lineage2Cipher.decrypt(key, buffer, 0, data.length);
+		return bytes(buffer);
+	}
+
+	/**
+	 * @param buffer
+	 *            the buffer
+	 * @return the buffer readable bytes
+	 */
+	private static byte[] bytes(ChannelBuffer buffer) {
+		final byte[] data = new byte[buffer.readableBytes()];
+		buffer.getBytes(buffer.readerIndex(), data);
+		return data;
+	}
+}
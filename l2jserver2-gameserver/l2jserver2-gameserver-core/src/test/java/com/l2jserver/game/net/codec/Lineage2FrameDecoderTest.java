@@ -0,0 +1,100 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.game.net.codec;
+
+import java.nio.ByteOrder;
+
+import junit.framework.Assert;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.junit.Test;
+
+/**
+ * Test for {@link Lineage2FrameDecoder}
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public class Lineage2FrameDecoderTest {
+	/**
+	 * The decoder
+	 */
+	private final Lineage2FrameDecoder decoder = new Lineage2FrameDecoder();
+
+	/**
+	 * Tests decoding of several frames on a single buffer
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testDecode() throws Exception {
+		final ChannelBuffer buffer = ChannelBuffers.dynamicBuffer(
+				ByteOrder.LITTLE_ENDIAN, 64);
+		buffer.writeShort(6);
+		buffer.writeInt(0x12345678);
+		buffer.writeShort(2); // empty frame
+		buffer.writeShort(4);
+		buffer.writeByte(0x01); // incomplete frame
+
+		final ChannelBuffer frame = decode(buffer);
+		Assert.assertEquals(4, frame.readableBytes());
+		Assert.assertEquals(ByteOrder.LITTLE_ENDIAN, frame.order());
+		Assert.assertEquals(0x12345678, frame.readInt());
+
+		Assert.assertNull(decode(buffer));
+		Assert.assertNull(decode(buffer));
+		Assert.assertEquals(3, buffer.readableBytes());
+
+		buffer.writeByte(0x02);
+		Assert.assertEquals(0x0201, decode(buffer).readShort());
+		Assert.assertFalse(buffer.readable());
+	}
+
+	/**
+	 * Tests that frames share the cumulation buffer content
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testZeroCopy() throws Exception {
+		final ChannelBuffer buffer = ChannelBuffers.buffer(
+				ByteOrder.LITTLE_ENDIAN, 3);
+		buffer.writeShort(3);
+		buffer.writeByte(0x10);
+
+		decode(buffer).setByte(0, 0x20);
+		Assert.assertEquals(0x20, buffer.getByte(2));
+
+		// big-endian heap buffers are wrapped, not copied
+		final ChannelBuffer big = ChannelBuffers.buffer(3);
+		big.writeByte(3).writeByte(0).writeByte(0x10);
+		final ChannelBuffer frame = decode(big);
+		Assert.assertEquals(ByteOrder.LITTLE_ENDIAN, frame.order());
+		frame.setByte(0, 0x20);
+		Assert.assertEquals(0x20, big.getByte(2));
+	}
+
+	/**
+	 * @param buffer
+	 *            the cumulation buffer
+	 * @return the decoded frame
+	 * @throws Exception
+	 */
+	private ChannelBuffer decode(ChannelBuffer buffer) throws Exception {
+		return (ChannelBuffer) decoder.decode(null, null, buffer);
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.game.net.codec;
+
+import java.nio.channels.ClosedChannelException;
+
+import junit.framework.Assert;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.handler.codec.embedder.EncoderEmbedder;
+import org.junit.Test;
+
+/**
+ * Test for {@link Lineage2OutboundBatcher}
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public class Lineage2OutboundBatcherTest {
+	/**
+	 * Tests that pending frames are written once the batch size is reached
+	 */
+	@Test
+	public void testSizeFlush() {
+		final EncoderEmbedder<ChannelBuffer> embedder = new EncoderEmbedder<ChannelBuffer>(
+				new Lineage2OutboundBatcher(8));
+
+		embedder.offer(frame(0x01020304));
+		Assert.assertNull(embedder.poll());
+		embedder.offer(frame(0x05060708));
+
+		final ChannelBuffer written = embedder.poll();
+		Assert.assertEquals(8, written.readableBytes());
+		Assert.assertEquals(0x01020304, written.readInt());
+		Assert.assertEquals(0x05060708, written.readInt());
+		Assert.assertNull(embedder.poll());
+	}
+
+	/**
+	 * Tests that pending frames are written when the network service flushes
+	 * them at the batch interval
+	 */
+	@Test
+	public void testIntervalFlush() {
+		final Lineage2OutboundBatcher batcher = new Lineage2OutboundBatcher(
+				1024);
+		final EncoderEmbedder<ChannelBuffer> embedder = new EncoderEmbedder<ChannelBuffer>(
+				batcher);
+
+		embedder.offer(frame(0x01020304));
+		embedder.offer(frame(0x05060708));
+		Assert.assertNull(embedder.poll());
+
+		batcher.flush();
+		final ChannelBuffer written = embedder.poll();
+		Assert.assertEquals(8, written.readableBytes());
+		Assert.assertEquals(0x01020304, written.readInt());
+		Assert.assertEquals(0x05060708, written.readInt());
+
+		// nothing is pending anymore
+		batcher.flush();
+		Assert.assertNull(embedder.poll());
+	}
+
+	/**
+	 * Tests that pending frames are written before the channel is closed
+	 */
+	@Test
+	public void testCloseRequested() {
+		final EncoderEmbedder<ChannelBuffer> embedder = new EncoderEmbedder<ChannelBuffer>(
+				new Lineage2OutboundBatcher(1024));
+
+		embedder.offer(frame(0x01020304));
+		Assert.assertNull(embedder.poll());
+
+		Assert.assertTrue(embedder.finish());
+		Assert.assertEquals(0x01020304, embedder.poll().readInt());
+	}
+
+	/**
+	 * Tests that pending frames are failed once the channel has been closed by
+	 * the remote side
+	 */
+	@Test
+	public void testChannelClosed() {
+		final EncoderEmbedder<ChannelBuffer> embedder = new EncoderEmbedder<ChannelBuffer>(
+				new Lineage2OutboundBatcher(1024));
+		final Channel channel = embedder.getPipeline().getChannel();
+
+		final ChannelFuture future = Channels.write(channel,
+				frame(0x01020304));
+		Assert.assertFalse(future.isDone());
+
+		Channels.fireChannelClosed(channel);
+		Assert.assertTrue(future.isDone());
+		Assert.assertFalse(future.isSuccess());
+		Assert.assertTrue(future.getCause() instanceof ClosedChannelException);
+		Assert.assertNull(embedder.poll());
+	}
+
+	/**
+	 * @param value
+	 *            the frame content
+	 * @return a four byte frame
+	 */
+	private ChannelBuffer frame(int value) {
+		final ChannelBuffer buffer = ChannelBuffers.buffer(4);
+		buffer.writeInt(value);
+		return buffer;
+	}
+}
@@ -0,0 +1,219 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.service.game.region;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.l2jserver.model.id.object.CharacterID;
+import com.l2jserver.model.id.template.CharacterTemplateID;
+import com.l2jserver.model.template.CharacterTemplate;
+import com.l2jserver.model.world.Actor.ActorState;
+import com.l2jserver.model.world.L2Character;
+import com.l2jserver.model.world.PositionableObject;
+import com.l2jserver.service.ServiceStartException;
+import com.l2jserver.service.ServiceStopException;
+import com.l2jserver.service.game.world.index.SpatialIndex;
+import com.l2jserver.util.geometry.Point3D;
+
+/**
+ * Tests for {@link RegionServiceImpl}
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public class RegionServiceImplTest {
+	/**
+	 * The region service
+	 */
+	private RegionServiceImpl regions;
+
+	/**
+	 * Preparation for tests
+	 * 
+	 * @throws ServiceStartException
+	 */
+	@Before
+	public void tearUp() throws ServiceStartException {
+		regions = new RegionServiceImpl();
+		regions.start();
+	}
+
+	/**
+	 * Stops the service
+	 * 
+	 * @throws ServiceStopException
+	 */
+	@After
+	public void tearDown() throws ServiceStopException {
+		regions.stop();
+	}
+
+	/**
+	 * Test adding and removing objects
+	 */
+	@Test
+	public void testOccupiedRegions() {
+		final PositionableObject object = object(center(10, 10));
+		regions.add(object);
+		final Region region = regions.getRegion(object);
+		Assert.assertEquals(10, region.getX());
+		Assert.assertEquals(10, region.getY());
+		Assert.assertTrue(region.getObjects().contains(object));
+		Assert.assertEquals(1, regions.getOccupiedRegions().size());
+		Assert.assertTrue(regions.getOccupiedRegions().contains(region));
+
+		regions.remove(object);
+		Assert.assertTrue(region.getObjects().isEmpty());
+		Assert.assertTrue(regions.getOccupiedRegions().isEmpty());
+	}
+
+	/**
+	 * Test moving an object across a region border
+	 */
+	@Test
+	public void testBorderCrossing() {
+		final L2Character character = character(1, center(10, 10));
+		regions.add(character);
+		final Region old = regions.getRegion(character);
+
+		// move just across the eastern border
+		character.setPoint(Point3D.fromXYZ(SpatialIndex.WORLD_MIN_X + 11
+				* RegionServiceImpl.REGION_SIZE, center(10, 10).getY(), 0));
+		regions.update(character);
+		final Region region = regions.getRegion(character);
+		Assert.assertEquals(11, region.getX());
+		Assert.assertFalse(old.getObjects().contains(character));
+		Assert.assertTrue(region.getObjects().contains(character));
+		Assert.assertEquals(0, old.getPlayerCount());
+		Assert.assertEquals(1, region.getPlayerCount());
+		Assert.assertEquals(1, regions.getOccupiedRegions().size());
+		Assert.assertTrue(regions.getOccupiedRegions().contains(region));
+	}
+
+	/**
+	 * Test region activation as a player comes near and goes away
+	 */
+	@Test
+	public void testActivation() {
+		final PositionableObject object = object(center(10, 10));
+		regions.add(object);
+		Assert.assertTrue(regions.getActiveRegions().isEmpty());
+
+		final L2Character character = character(1, center(10, 10));
+		regions.add(character);
+		Assert.assertEquals(9, regions.getActiveRegions().size());
+		Assert.assertTrue(region(9, 9).isActive());
+		Assert.assertTrue(region(11, 11).isActive());
+		Assert.assertFalse(region(12, 10).isActive());
+
+		// two regions east, the western column is no longer near
+		character.setPoint(center(12, 10));
+		regions.update(character);
+		Assert.assertEquals(9, regions.getActiveRegions().size());
+		Assert.assertFalse(region(9, 10).isActive());
+		Assert.assertTrue(region(11, 10).isActive());
+		Assert.assertTrue(region(13, 10).isActive());
+
+		regions.remove(character);
+		Assert.assertTrue(regions.getActiveRegions().isEmpty());
+		Assert.assertFalse(region(12, 10).isActive());
+	}
+
+	/**
+	 * Test tracking of moving actors
+	 */
+	@Test
+	public void testMovingActors() {
+		final L2Character character = character(1, center(10, 10));
+		regions.add(character);
+		final Region old = regions.getRegion(character);
+		Assert.assertTrue(old.getMovingActors().isEmpty());
+
+		character.setState(ActorState.MOVING);
+		regions.update(character);
+		Assert.assertTrue(old.getMovingActors().contains(character));
+
+		character.setPoint(center(11, 10));
+		regions.update(character);
+		Assert.assertTrue(old.getMovingActors().isEmpty());
+		Assert.assertTrue(regions.getRegion(character).getMovingActors()
+				.contains(character));
+
+		character.setState(null);
+		regions.update(character);
+		Assert.assertTrue(regions.getRegion(character).getMovingActors()
+				.isEmpty());
+	}
+
+	/**
+	 * @param x
+	 *            the region column
+	 * @param y
+	 *            the region row
+	 * @return the region
+	 */
+	private Region region(int x, int y) {
+		return regions.getRegion(center(x, y));
+	}
+
+	/**
+	 * @param x
+	 *            the region column
+	 * @param y
+	 *            the region row
+	 * @return the point at the center of the region
+	 */
+	private static Point3D center(int x, int y) {
+		final int half = RegionServiceImpl.REGION_SIZE / 2;
+		return Point3D.fromXYZ(SpatialIndex.WORLD_MIN_X + x
+				* RegionServiceImpl.REGION_SIZE + half, SpatialIndex.WORLD_MIN_Y
+				+ y * RegionServiceImpl.REGION_SIZE + half, 0);
+	}
+
+	/**
+	 * @param objectId
+	 *            the character object id
+	 * @param point
+	 *            the character point
+	 * @return a new character
+	 */
+	private static L2Character character(int objectId, Point3D point) {
+		final L2Character character = new L2Character(new CharacterTemplate() {
+			{
+				id = new CharacterTemplateID(0, null);
+			}
+		});
+		character.setID(new CharacterID(objectId, null));
+		character.setPoint(point);
+		return character;
+	}
+
+	/**
+	 * @param point
+	 *            the object point
+	 * @return a new object, that is not a player
+	 */
+	private static PositionableObject object(Point3D point) {
+		final PositionableObject object = new PositionableObject() {
+		};
+		object.setPoint(point);
+		return object;
+	}
+}
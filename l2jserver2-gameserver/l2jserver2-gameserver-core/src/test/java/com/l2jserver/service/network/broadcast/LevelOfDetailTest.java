@@ -0,0 +1,109 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.service.network.broadcast;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.l2jserver.model.id.object.CharacterID;
+import com.l2jserver.model.id.template.CharacterTemplateID;
+import com.l2jserver.model.template.CharacterTemplate;
+import com.l2jserver.model.world.L2Character;
+import com.l2jserver.util.geometry.Point3D;
+
+/**
+ * Tests for {@link LevelOfDetail}
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public class LevelOfDetailTest {
+	/**
+	 * The level of detail: every update up to 1000, one update each 200ms up
+	 * to 3000 and no update farther than that
+	 */
+	private final LevelOfDetail detail = new LevelOfDetail(1000, 3000, 200);
+	/**
+	 * The observer
+	 */
+	private final L2Character observer = character(1, 0);
+
+	/**
+	 * Test every update of near objects is accepted
+	 */
+	@Test
+	public void testNear() {
+		final L2Character object = character(2, 500);
+		for (int i = 0; i < 10; i++) {
+			Assert.assertTrue(detail.accept(observer, object));
+		}
+	}
+
+	/**
+	 * Test updates of objects in the mid range are throttled
+	 * 
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testMid() throws InterruptedException {
+		final L2Character object = character(2, 2000);
+		Assert.assertTrue(detail.accept(observer, object));
+		Assert.assertFalse(detail.accept(observer, object));
+
+		// each object is throttled on its own
+		Assert.assertTrue(detail.accept(observer, character(3, 2000)));
+
+		Thread.sleep(250);
+		Assert.assertTrue(detail.accept(observer, object));
+		Assert.assertFalse(detail.accept(observer, object));
+
+		// objects going out of sight are forgotten
+		detail.remove(object);
+		Assert.assertTrue(detail.accept(observer, object));
+	}
+
+	/**
+	 * Test no update of far objects is accepted
+	 */
+	@Test
+	public void testFar() {
+		final L2Character object = character(2, 4000);
+		Assert.assertFalse(detail.accept(observer, object));
+
+		// coming closer sends the update right away
+		object.setPoint(Point3D.fromXYZ(2000, 0, 0));
+		Assert.assertTrue(detail.accept(observer, object));
+	}
+
+	/**
+	 * @param objectId
+	 *            the character object id
+	 * @param x
+	 *            the character x coordinate
+	 * @return a new character
+	 */
+	private static L2Character character(int objectId, int x) {
+		final L2Character character = new L2Character(new CharacterTemplate() {
+			{
+				id = new CharacterTemplateID(0, null);
+			}
+		});
+		character.setID(new CharacterID(objectId, null));
+		character.setPoint(Point3D.fromXYZ(x, 0, 0));
+		return character;
+	}
+}
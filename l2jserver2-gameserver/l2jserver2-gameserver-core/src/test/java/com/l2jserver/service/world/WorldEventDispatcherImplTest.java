@@ -16,7 +16,10 @@
  */
 package com.l2jserver.service.world;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -30,6 +33,12 @@ import com.l2jserver.model.id.object.provider.ItemIDProvider;
 import com.l2jserver.model.id.provider.IDProviderModule;
 import com.l2jserver.model.world.Item;
 import com.l2jserver.model.world.L2Character;
+import com.l2jserver.model.world.character.event.CharacterEvent;
+import com.l2jserver.model.world.character.event.CharacterLeaveWorldEvent;
+import com.l2jserver.model.world.character.event.CharacterListener;
+import com.l2jserver.model.world.character.event.CharacterMoveEvent;
+import com.l2jserver.model.world.character.event.CharacterWalkingEvent;
+import com.l2jserver.model.world.event.SpawnEvent;
 import com.l2jserver.model.world.item.ItemDropEvent;
 import com.l2jserver.model.world.item.ItemEvent;
 import com.l2jserver.model.world.item.ItemListener;
@@ -42,6 +51,10 @@ import com.l2jserver.service.game.world.WorldIDService;
 import com.l2jserver.service.game.world.WorldService;
 import com.l2jserver.service.game.world.event.WorldEventDispatcherService;
 import com.l2jserver.service.game.world.event.WorldEventDispatcherServiceImpl;
+import com.l2jserver.service.game.world.event.WorldEvent;
+import com.l2jserver.service.game.world.event.WorldEventFuture;
+import com.l2jserver.service.game.world.event.WorldListener;
+import com.l2jserver.util.geometry.Point3D;
 
 /**
  * Test for {@link WorldEventDispatcherServiceImpl}
@@ -182,4 +195,212 @@ public class WorldEventDispatcherImplTest {
 		Assert.assertFalse(bool1.get());
 		Assert.assertTrue(bool2.get());
 	}
+
+	@Test
+	public void testDispatchOrder() throws Exception {
+		final L2Character character1 = new L2Character(null);
+		character1.setID(cidFactory.createID());
+		final L2Character character2 = new L2Character(null);
+		character2.setID(cidFactory.createID());
+		world.add(character1);
+		world.add(character2);
+
+		final List<PlayerEvent> dispatched1 = new ArrayList<PlayerEvent>();
+		final List<PlayerEvent> dispatched2 = new ArrayList<PlayerEvent>();
+		dispatcher.addListener(character1, new PlayerListener() {
+			@Override
+			protected boolean dispatch(PlayerEvent e) {
+				dispatched1.add(e);
+				return true;
+			}
+		});
+		dispatcher.addListener(character2, new PlayerListener() {
+			@Override
+			protected boolean dispatch(PlayerEvent e) {
+				dispatched2.add(e);
+				return true;
+			}
+		});
+
+		final List<PlayerEvent> events1 = new ArrayList<PlayerEvent>();
+		final List<PlayerEvent> events2 = new ArrayList<PlayerEvent>();
+		WorldEventFuture<PlayerSpawnEvent> last1 = null;
+		WorldEventFuture<PlayerSpawnEvent> last2 = null;
+		for (int i = 0; i < 100; i++) {
+			final PlayerSpawnEvent event1 = new PlayerSpawnEvent(character1,
+					null);
+			final PlayerSpawnEvent event2 = new PlayerSpawnEvent(character2,
+					null);
+			events1.add(event1);
+			events2.add(event2);
+			last1 = dispatcher.dispatch(event1);
+			last2 = dispatcher.dispatch(event2);
+		}
+		last1.await();
+		last2.await();
+
+		// events for the same object are dispatched in order
+		Assert.assertEquals(events1, dispatched1);
+		Assert.assertEquals(events2, dispatched2);
+	}
+
+	@Test
+	public void testAreaSubscription() throws Exception {
+		final L2Character character1 = new L2Character(null);
+		character1.setID(cidFactory.createID());
+		character1.setPoint(Point3D.fromXYZ(146000, 25000, -2000));
+		final L2Character near = new L2Character(null);
+		near.setID(cidFactory.createID());
+		near.setPoint(Point3D.fromXYZ(146783, 25808, -2008));
+		final L2Character far = new L2Character(null);
+		far.setID(cidFactory.createID());
+		far.setPoint(Point3D.fromXYZ(-84318, 244579, -3730));
+
+		final AtomicInteger count = new AtomicInteger();
+		dispatcher.subscribe(character1, 2000, new WorldListener() {
+			@Override
+			public boolean dispatch(WorldEvent e) {
+				count.incrementAndGet();
+				return true;
+			}
+		});
+
+		dispatcher.dispatch(new PlayerSpawnEvent(near, null)).await();
+		dispatcher.dispatch(new PlayerSpawnEvent(far, null)).await();
+		Assert.assertEquals(1, count.get());
+
+		// only events of the subscribed types are delivered
+		final AtomicInteger items = new AtomicInteger();
+		dispatcher.subscribe(character1, 2000, new WorldListener() {
+			@Override
+			public boolean dispatch(WorldEvent e) {
+				Assert.assertTrue(e instanceof ItemDropEvent);
+				items.incrementAndGet();
+				return true;
+			}
+		}, ItemDropEvent.class);
+		dispatcher.dispatch(new PlayerSpawnEvent(near, null)).await();
+		Assert.assertEquals(2, count.get());
+		Assert.assertEquals(0, items.get());
+
+		// subscriptions are removed once the subscriber leaves the world
+		dispatcher.dispatch(new CharacterLeaveWorldEvent(character1)).await();
+		dispatcher.dispatch(new PlayerSpawnEvent(near, null)).await();
+		Assert.assertEquals(2, count.get());
+	}
+
+	@Test
+	public void testTypedRegistration() throws Exception {
+		final L2Character character1 = new L2Character(null);
+		character1.setID(cidFactory.createID());
+		final Item item1 = new Item(null);
+		item1.setID(iidFactory.createID());
+
+		final AtomicInteger count = new AtomicInteger();
+		dispatcher.addListener(new WorldListener() {
+			@Override
+			public boolean dispatch(WorldEvent e) {
+				Assert.assertTrue(e instanceof ItemDropEvent);
+				count.incrementAndGet();
+				return true;
+			}
+		}, ItemDropEvent.class);
+
+		dispatcher.dispatch(new PlayerSpawnEvent(character1, null)).await();
+		Assert.assertEquals(0, count.get());
+		dispatcher.dispatch(new ItemDropEvent(character1, item1)).await();
+		Assert.assertEquals(1, count.get());
+
+		Assert.assertEquals(1, dispatcher.getListenerCount(ItemDropEvent.class));
+		Assert.assertEquals(0,
+				dispatcher.getListenerCount(PlayerSpawnEvent.class));
+		Assert.assertEquals(1,
+				dispatcher.getMetrics().getMetrics().get(ItemDropEvent.class)
+						.getCount());
+	}
+
+	@Test
+	public void testOverlappingTypes() throws Exception {
+		final L2Character character1 = new L2Character(null);
+		character1.setID(cidFactory.createID());
+
+		// PlayerSpawnEvent is both a PlayerEvent and a SpawnEvent
+		final AtomicInteger count = new AtomicInteger();
+		dispatcher.addListener(character1, new WorldListener() {
+			@Override
+			public boolean dispatch(WorldEvent e) {
+				count.incrementAndGet();
+				return true;
+			}
+		}, PlayerEvent.class, SpawnEvent.class);
+
+		dispatcher.dispatch(new PlayerSpawnEvent(character1, null)).await();
+		Assert.assertEquals(1, count.get());
+		Assert.assertEquals(1,
+				dispatcher.getListenerCount(PlayerSpawnEvent.class));
+	}
+
+	@Test
+	public void testCoalescing() throws Exception {
+		final L2Character character1 = new L2Character(null);
+		character1.setID(cidFactory.createID());
+
+		final List<CharacterMoveEvent> dispatched = new ArrayList<CharacterMoveEvent>();
+		dispatcher.addListener(character1, new CharacterListener() {
+			@Override
+			protected boolean dispatch(CharacterEvent e) {
+				dispatched.add((CharacterMoveEvent) e);
+				return true;
+			}
+		}, CharacterMoveEvent.class);
+
+		final List<WorldEventFuture<CharacterMoveEvent>> futures = new ArrayList<WorldEventFuture<CharacterMoveEvent>>();
+		CharacterMoveEvent last = null;
+		for (int i = 0; i < 10; i++) {
+			last = new CharacterMoveEvent(character1, Point3D.fromXYZ(i, 0, 0));
+			futures.add(dispatcher.dispatch(last));
+		}
+		for (final WorldEventFuture<CharacterMoveEvent> future : futures) {
+			future.await();
+		}
+
+		// move events are collapsed into the latest one, at most one flush
+		// can happen in the middle of the burst
+		Assert.assertTrue(dispatched.size() <= 2);
+		Assert.assertSame(last, dispatched.get(dispatched.size() - 1));
+	}
+
+	@Test
+	public void testPriorities() throws Exception {
+		final L2Character character1 = new L2Character(null);
+		character1.setID(cidFactory.createID());
+
+		final List<WorldEvent> dispatched = new ArrayList<WorldEvent>();
+		dispatcher.addListener(character1, new CharacterListener() {
+			@Override
+			protected synchronized boolean dispatch(CharacterEvent e) {
+				dispatched.add(e);
+				return true;
+			}
+		}, CharacterWalkingEvent.class, CharacterLeaveWorldEvent.class);
+
+		final List<WorldEvent> events = new ArrayList<WorldEvent>();
+		final List<WorldEventFuture<?>> futures = new ArrayList<WorldEventFuture<?>>();
+		for (int i = 0; i < 50; i++) {
+			final CharacterWalkingEvent low = new CharacterWalkingEvent(
+					character1);
+			final CharacterLeaveWorldEvent normal = new CharacterLeaveWorldEvent(
+					character1);
+			events.add(low);
+			events.add(normal);
+			futures.add(dispatcher.dispatch(low));
+			futures.add(dispatcher.dispatch(normal));
+		}
+		for (final WorldEventFuture<?> future : futures) {
+			future.await();
+		}
+
+		// events of the same object never overtake each other
+		Assert.assertEquals(events, dispatched);
+	}
 }
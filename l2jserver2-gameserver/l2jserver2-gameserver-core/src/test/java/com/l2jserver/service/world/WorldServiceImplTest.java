@@ -16,6 +16,9 @@
  */
 package com.l2jserver.service.world;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import junit.framework.Assert;
 
 import org.junit.Before;
@@ -27,12 +30,20 @@ import com.l2jserver.model.id.object.provider.CharacterIDProvider;
 import com.l2jserver.model.id.provider.IDProviderModule;
 import com.l2jserver.model.world.Item;
 import com.l2jserver.model.world.L2Character;
+import com.l2jserver.model.world.PositionableObject;
 import com.l2jserver.model.world.WorldObject;
+import com.l2jserver.model.world.positionable.KnownListUpdate;
 import com.l2jserver.service.ServiceManager;
 import com.l2jserver.service.ServiceStartException;
 import com.l2jserver.service.game.world.WorldService;
+import com.l2jserver.service.game.world.WorldService.RangeVisitor;
 import com.l2jserver.service.game.world.WorldServiceImpl;
+import com.l2jserver.service.game.world.filter.WorldFilters;
+import com.l2jserver.service.game.world.filter.WorldObjectFilter;
+import com.l2jserver.service.game.world.filter.impl.IDFilter;
 import com.l2jserver.service.game.world.filter.impl.InstanceFilter;
+import com.l2jserver.service.game.world.filter.impl.RangePointFilter;
+import com.l2jserver.util.geometry.Point3D;
 
 /**
  * Tests for {@link WorldServiceImpl}
@@ -163,4 +174,167 @@ public class WorldServiceImplTest {
 			Assert.assertNotNull(o);
 		}
 	}
+
+	/**
+	 * Test type queries resolved by the world partitions
+	 */
+	@Test
+	public void testListType() {
+		final L2Character character = new L2Character(null);
+		character.setID(provider.createID());
+		final Item item = new Item(null);
+		item.setID(provider.createID());
+		world.add(character);
+		world.add(item);
+
+		Assert.assertEquals(1, world.list(L2Character.class).size());
+		Assert.assertSame(item, world.list(Item.class).get(0));
+		Assert.assertEquals(2, world.list(WorldObject.class).size());
+
+		world.remove(character);
+		Assert.assertTrue(world.list(L2Character.class).isEmpty());
+	}
+
+	/**
+	 * Test composed queries resolved by the query planner
+	 */
+	@Test
+	public void testComposedQuery() {
+		final L2Character character1 = new L2Character(null);
+		character1.setID(provider.createID());
+		final L2Character character2 = new L2Character(null);
+		character2.setID(provider.createID());
+		final L2Character character3 = new L2Character(null);
+		character3.setID(provider.createID());
+		world.add(character1);
+		world.add(character2);
+		world.add(character3);
+
+		final WorldObjectFilter<WorldObject> id1 = new IDFilter(
+				character1.getID());
+		final WorldObjectFilter<WorldObject> id2 = new IDFilter(
+				character2.getID());
+		Assert.assertSame(character1, world.list(id1).get(0));
+		Assert.assertEquals(2, world.list(WorldFilters.or(id1, id2, id1))
+				.size());
+		Assert.assertEquals(
+				1,
+				world.list(
+						WorldFilters.and(id2, new InstanceFilter<WorldObject>(
+								L2Character.class))).size());
+		Assert.assertEquals(2,
+				world.list(WorldFilters.not(WorldFilters.not(WorldFilters.or(
+						id1, id2)))).size());
+		Assert.assertEquals(1,
+				world.list(WorldFilters.not(WorldFilters.or(id1, id2))).size());
+	}
+
+	/**
+	 * Test range queries resolved by the spatial index
+	 */
+	@Test
+	public void testRangeIterator() {
+		final L2Character near = new L2Character(null);
+		near.setID(provider.createID());
+		near.setPoint(Point3D.fromXYZ(146783, 25808, -2008));
+		final L2Character far = new L2Character(null);
+		far.setID(provider.createID());
+		far.setPoint(Point3D.fromXYZ(-84318, 244579, -3730));
+		world.add(near);
+		world.add(far);
+
+		final Point3D center = Point3D.fromXYZ(146000, 25000, -2000);
+		int count = 0;
+		for (final WorldObject o : world.iterable(new RangePointFilter(center,
+				2000))) {
+			Assert.assertSame(near, o);
+			count++;
+		}
+		Assert.assertEquals(1, count);
+
+		// moving the far character near the center must update the index
+		far.setPoint(Point3D.fromXYZ(145000, 24500, -2000));
+		Assert.assertTrue(world.update(far));
+		Assert.assertEquals(2,
+				world.list(new RangePointFilter(center, 2000)).size());
+	}
+
+	/**
+	 * Test range queries using a visitor
+	 */
+	@Test
+	public void testForEachInRange() {
+		final L2Character near = new L2Character(null);
+		near.setID(provider.createID());
+		near.setPoint(Point3D.fromXYZ(146783, 25808, -2008));
+		final L2Character far = new L2Character(null);
+		far.setID(provider.createID());
+		far.setPoint(Point3D.fromXYZ(-84318, 244579, -3730));
+		final Item item = new Item(null);
+		item.setID(provider.createID());
+		item.setPoint(Point3D.fromXYZ(146500, 25500, -2000));
+		world.add(near);
+		world.add(far);
+		world.add(item);
+
+		final List<L2Character> found = new ArrayList<L2Character>();
+		Assert.assertTrue(world.forEachInRange(146000, 25000, -2000, 2000,
+				L2Character.class, new RangeVisitor<L2Character>() {
+					@Override
+					public boolean visit(L2Character object) {
+						found.add(object);
+						return true;
+					}
+				}));
+		Assert.assertEquals(1, found.size());
+		Assert.assertSame(near, found.get(0));
+
+		// the visitor can stop the scan
+		Assert.assertFalse(world.forEachInRange(146000, 25000, -2000, 2000,
+				PositionableObject.class,
+				new RangeVisitor<PositionableObject>() {
+					@Override
+					public boolean visit(PositionableObject object) {
+						return false;
+					}
+				}));
+	}
+
+	/**
+	 * Test incremental known list updates
+	 */
+	@Test
+	public void testKnownListUpdate() {
+		final L2Character character = new L2Character(null);
+		character.setID(provider.createID());
+		character.setPoint(Point3D.fromXYZ(146783, 25808, -2008));
+		final L2Character other = new L2Character(null);
+		other.setID(provider.createID());
+		other.setPoint(Point3D.fromXYZ(146000, 25000, -2000));
+		world.add(character);
+		world.add(other);
+
+		KnownListUpdate update = world.updateKnownList(character);
+		Assert.assertEquals(1, update.getEntered().size());
+		Assert.assertTrue(update.getLeft().isEmpty());
+		Assert.assertTrue(character.getKnownList().contains(other));
+		Assert.assertTrue(other.getKnownList().contains(character));
+
+		// nothing changed, no diffs
+		Assert.assertTrue(world.updateKnownList(character).isEmpty());
+
+		// between the enter and leave ranges, still known
+		character.setPoint(Point3D.fromXYZ(148200, 25000, -2000));
+		world.update(character);
+		Assert.assertTrue(world.updateKnownList(character).isEmpty());
+		Assert.assertTrue(character.getKnownList().contains(other));
+
+		character.setPoint(Point3D.fromXYZ(-84318, 244579, -3730));
+		world.update(character);
+		update = world.updateKnownList(character);
+		Assert.assertTrue(update.getEntered().isEmpty());
+		Assert.assertEquals(1, update.getLeft().size());
+		Assert.assertFalse(character.getKnownList().contains(other));
+		Assert.assertFalse(other.getKnownList().contains(character));
+	}
 }
@@ -30,6 +30,7 @@ import com.l2jserver.game.net.codec.Lineage2Decrypter;
 import com.l2jserver.game.net.codec.Lineage2Encrypter;
 import com.l2jserver.game.net.codec.Lineage2FrameDecoder;
 import com.l2jserver.game.net.codec.Lineage2FrameEncoder;
+import com.l2jserver.game.net.codec.Lineage2OutboundBatcher;
 import com.l2jserver.game.net.codec.Lineage2PacketReader;
 import com.l2jserver.game.net.codec.Lineage2PacketWriter;
 import com.l2jserver.game.net.handler.Lineage2PacketHandler;
@@ -75,6 +76,12 @@ public class Lineage2PipelineFactory implements ChannelPipelineFactory {
 		// pipeline.addLast("timeout.tiner", new IdleStateHandler(
 		// new HashedWheelTimer(), 30, 30, 0));
 
+		// first handler: frames are batched once fully encoded and encrypted
+		final Lineage2OutboundBatcher batcher = nettyNetworkService
+				.createOutboundBatcher();
+		if (batcher != null)
+			pipeline.addLast(Lineage2OutboundBatcher.HANDLER_NAME, batcher);
+
 		pipeline.addLast("frame.encoder", new Lineage2FrameEncoder());
 		pipeline.addLast("frame.decoder", new Lineage2FrameDecoder());
 
@@ -0,0 +1,123 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.tool.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Compares the time and memory taken by an operation before and after an
+ * optimization. Both implementations are warmed up first, then measured in
+ * alternating rounds on the current thread. Results are printed to the
+ * standard output.
+ * <p>
+ * The allocated bytes are only reported on JVMs that support measuring the
+ * memory allocated by a thread.
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public class Benchmark {
+	/**
+	 * The amount of measured rounds
+	 */
+	private static final int ROUNDS = 5;
+
+	/**
+	 * The benchmark name
+	 */
+	private final String name;
+	/**
+	 * The amount of operations on each round
+	 */
+	private final int operations;
+	/**
+	 * The thread bean, if it can measure allocated memory. <tt>null</tt>
+	 * otherwise.
+	 */
+	private final com.sun.management.ThreadMXBean threads;
+
+	/**
+	 * @param name
+	 *            the benchmark name
+	 * @param operations
+	 *            the amount of operations on each round
+	 */
+	public Benchmark(String name, int operations) {
+		this.name = name;
+		this.operations = operations;
+		final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) bean)
+						.isThreadAllocatedMemorySupported()) {
+			threads = (com.sun.management.ThreadMXBean) bean;
+			threads.setThreadAllocatedMemoryEnabled(true);
+		} else {
+			threads = null;
+		}
+	}
+
+	/**
+	 * Measures both implementations and prints the results
+	 * 
+	 * @param before
+	 *            a single operation, as implemented before the optimization
+	 * @param after
+	 *            a single operation, as implemented after the optimization
+	 */
+	public void compare(Runnable before, Runnable after) {
+		// let the JIT compile both implementations
+		run(before);
+		run(after);
+		run(before);
+		run(after);
+
+		for (int i = 0; i < ROUNDS; i++) {
+			System.out.println(name + ": before " + measure(before)
+					+ ", after " + measure(after));
+		}
+	}
+
+	/**
+	 * @param operation
+	 *            the operation
+	 * @return the time and memory taken by each operation
+	 */
+	private String measure(Runnable operation) {
+		final long id = Thread.currentThread().getId();
+		final long allocated = (threads != null ? threads
+				.getThreadAllocatedBytes(id) : 0);
+		final long start = System.nanoTime();
+		run(operation);
+		final long time = (System.nanoTime() - start) / operations;
+		if (threads == null)
+			return time + " ns/op";
+		return time + " ns/op " + (threads.getThreadAllocatedBytes(id)
+				- allocated) / operations + " B/op";
+	}
+
+	/**
+	 * Runs the <tt>operation</tt> once for each operation of a round
+	 * 
+	 * @param operation
+	 *            the operation
+	 */
+	private void run(Runnable operation) {
+		for (int i = 0; i < operations; i++) {
+			operation.run();
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.tool.benchmark;
+
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+import com.l2jserver.game.net.codec.Lineage2Cipher;
+import com.l2jserver.service.network.model.Lineage2CryptographyKey;
+
+/**
+ * Compares the throughput of {@link Lineage2Cipher} with the previous
+ * per-byte {@link ChannelBuffer} implementation
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public class CipherBenchmark {
+	/**
+	 * The packet size
+	 */
+	private static final int SIZE = 512;
+
+	/**
+	 * @param args
+	 *            the arguments
+	 */
+	public static void main(String[] args) {
+		final byte[] data = new byte[SIZE];
+		new Random(0).nextBytes(data);
+		final ChannelBuffer buffer = ChannelBuffers.wrappedBuffer(
+				ByteOrder.LITTLE_ENDIAN, data);
+		final byte[] seed = new byte[16];
+		new Random(1).nextBytes(seed);
+		final Lineage2CryptographyKey key = new Lineage2CryptographyKey(seed);
+
+		new Benchmark("Lineage2Cipher (" + SIZE + " bytes)", 20000).compare(
+				new Runnable() {
+					@Override
+					public void run() {
+						legacyDecrypt(key, buffer);
+					}
+				}, new Runnable() {
+					@Override
+					public void run() {
+						Lineage2Cipher.decrypt(key, buffer, 0, SIZE);
+					}
+				});
+	}
+
+	/**
+	 * The decryption loop used before {@link Lineage2Cipher}
+	 * 
+	 * @param key
+	 *            the key
+	 * @param buffer
+	 *            the encrypted buffer
+	 */
+	private static void legacyDecrypt(Lineage2CryptographyKey key,
+			ChannelBuffer buffer) {
+		final int offset = buffer.readerIndex();
+		final int size = buffer.readableBytes();
+		int temp = 0;
+		synchronized (key) {
+			for (int i = 0; i < size; i++) {
+				int temp2 = buffer.getByte(offset + i) & 0xFF;
+				buffer.setByte(offset + i, (temp2 ^ key.get(i) ^ temp));
+				temp = temp2;
+			}
+			key.update(size);
+		}
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * This file is part of l2jserver2 <l2jserver2.com>.
+ *
+ * l2jserver2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * l2jserver2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with l2jserver2.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.l2jserver.tool.benchmark;
+
+import java.nio.ByteOrder;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+import com.l2jserver.game.net.codec.Lineage2FrameDecoder;
+
+/**
+ * Compares the time and memory taken to decode each inbound frame by
+ * {@link Lineage2FrameDecoder} with the previous, copying, implementation
+ * 
+ * @author <a href="http://www.rogiel.com">Rogiel</a>
+ */
+public class FrameDecoderBenchmark {
+	/**
+	 * The frame payload size
+	 */
+	private static final int PAYLOAD = 32;
+
+	/**
+	 * @param args
+	 *            the arguments
+	 */
+	public static void main(String[] args) {
+		final ChannelBuffer buffer = ChannelBuffers.buffer(
+				ByteOrder.LITTLE_ENDIAN, PAYLOAD + 2);
+		buffer.writeShort(PAYLOAD + 2);
+		buffer.writeZero(PAYLOAD);
+		final BenchmarkDecoder decoder = new BenchmarkDecoder();
+
+		new Benchmark("Lineage2FrameDecoder (" + PAYLOAD + " bytes)", 100000)
+				.compare(new Runnable() {
+					@Override
+					public void run() {
+						buffer.readerIndex(0);
+						legacyDecode(buffer);
+					}
+				}, new Runnable() {
+					@Override
+					public void run() {
+						buffer.readerIndex(0);
+						decoder.decode(buffer);
+					}
+				});
+	}
+
+	/**
+	 * The decoding algorithm used before frames were sliced
+	 * 
+	 * @param oldBuffer
+	 *            the cumulation buffer
+	 * @return the decoded frame
+	 */
+	private static ChannelBuffer legacyDecode(ChannelBuffer oldBuffer) {
+		if (oldBuffer.readableBytes() < 2)
+			return null;
+		ChannelBuffer buffer = ChannelBuffers.wrappedBuffer(oldBuffer
+				.toByteBuffer().order(ByteOrder.LITTLE_ENDIAN));
+
+		buffer.markReaderIndex();
+		final int pending = buffer.readUnsignedShort() - 2;
+		if (pending == 0)
+			return null;
+		if (buffer.readableBytes() < pending) {
+			buffer.resetReaderIndex();
+			return null;
+		}
+
+		final ChannelBuffer b = buffer.copy(buffer.readerIndex(), pending);
+		oldBuffer.skipBytes(pending + 2);
+		return ChannelBuffers.wrappedBuffer(b.toByteBuffer().order(
+				ByteOrder.LITTLE_ENDIAN));
+	}
+
+	/**
+	 * Exposes the decoding of a single frame
+	 * 
+	 * @author <a href="http://www.rogiel.com">Rogiel</a>
+	 */
+	private static class BenchmarkDecoder extends Lineage2FrameDecoder {
+		/**
+		 * @param buffer
+		 *            the cumulation buffer
+		 * @return the decoded frame
+		 */
+		public Object decode(ChannelBuffer buffer) {
+			try {
+				return decode(null, null, buffer);
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}